@@ -8,6 +8,9 @@
 import org.springframework.context.annotation.Configuration;
 import org.springframework.validation.annotation.Validated;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 @ConfigurationProperties(prefix = "alpaca")
 @Validated
@@ -41,4 +44,100 @@ public class AlpacaProperties {
     @NotNull
     private Integer pollIntervalMs = 1200;
 
+    // Entries go out as bracket orders (entry + TP + SL in one request) instead of buy, then OCO after the fill
+    private boolean bracketEntries = true;
+
+    // Market-data WebSocket instead of REST polling (REST stays as fallback)
+    private boolean streamEnabled = false;
+
+    private String streamUrl = "wss://stream.data.alpaca.markets/v2/iex";
+
+    // Account trade_updates WebSocket: fills and exits pushed instead of polled (REST polling stays as fallback)
+    private boolean tradeStreamEnabled = false;
+
+    private String tradeStreamUrl; // default: base-url host + /stream
+
+    // Trigger callbacks (order placement) run on their own executor, apart from price polling
+    @NotNull
+    private Integer callbackMaxConcurrency = 16;
+
+    @NotNull
+    private Integer callbackQueueCapacity = 1000;
+
+    private boolean callbackVirtualThreads = true; // used when the runtime is Java 21+
+
+    // Client-side request budget shared by all Alpaca calls (Alpaca allows 200/min)
+    @NotNull
+    private Integer rateLimitPerMinute = 190;
+
+    @NotNull
+    private Integer rateLimitBurst = 20;
+
+    // Idle time after which each Alpaca host gets a cheap keep-alive request (0 disables)
+    @NotNull
+    private Long keepAliveIntervalMs = 20_000L;
+
+    // In-memory account book: seeded at startup, re-read from Alpaca this often to correct drift (0 = never)
+    @NotNull
+    private Long accountReconcileIntervalMs = 300_000L;
+
+    // Audit events: buffered, written by one thread in batches of audit-batch-size or every audit-flush-ms
+    @NotNull
+    private Integer auditQueueCapacity = 10_000;
+
+    @NotNull
+    private Integer auditBatchSize = 200;
+
+    @NotNull
+    private Long auditFlushMs = 250L;
+
+    @NotBlank
+    private String auditOverflow = "DROP_OLDEST"; // or DROP_NEWEST
+
+    // Quote/trade cache in front of market-data calls (concurrent requests share one fetch)
+    @NotNull
+    private Long marketDataCacheTtlMs = 250L;
+
+    @NotNull
+    private Integer marketDataCacheMaxEntries = 1000;
+
+    // Per request class overrides of the retry policy (alpaca.retry.order.max-retries=3, ...), keyed by
+    // class name; checked against the request classes when the client starts
+    private Map<String, Retry> retry = new HashMap<>();
+
+    // Circuit breaker applied to each request class separately (alpaca.circuit-breaker.open-ms=10000, ...)
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    // Per execution stage overrides of its bounds (alpaca.stages.submit.max-concurrent=20, ...), keyed by
+    // stage name; checked against the stages when the pipeline starts
+    private Map<String, Stage> stages = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Retry {
+        private Integer maxRetries;
+        private Long baseDelayMs;
+        private Long maxDelayMs;
+        private Long maxElapsedMs;
+    }
+
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private int windowSize = 20;            // last N calls of the class
+        private int minimumCalls = 10;          // no verdict before this many calls
+        private int failureRatePercent = 50;    // I/O errors and 5xx
+        private long slowCallMs = 3_000;
+        private int slowCallRatePercent = 80;
+        private long openMs = 10_000;           // fail fast this long, then probe
+    }
+
+    @Getter
+    @Setter
+    public static class Stage {
+        private Integer maxConcurrent;  // steps in flight at once
+        private Integer queueCapacity;  // steps waiting beyond that; more are rejected
+        private Long timeoutMs;
+    }
+
 }
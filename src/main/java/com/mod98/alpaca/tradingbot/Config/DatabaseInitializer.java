@@ -36,6 +36,9 @@ CREATE TABLE IF NOT EXISTS app_settings (
                   alpaca_min_volume BIGINT NOT NULL DEFAULT 100000,
                   alpaca_paper BOOLEAN NOT NULL DEFAULT TRUE,
                   alpaca_spread_guard_bps INTEGER NOT NULL DEFAULT 50,
+                  alpaca_max_symbol_exposure NUMERIC(12,2),
+                  alpaca_max_total_exposure NUMERIC(12,2),
+                  alpaca_max_open_positions INTEGER,
                   channel_id BIGINT,
                   fixed_budget NUMERIC(12,2) NOT NULL DEFAULT 200.00,
                   regex_enabled BOOLEAN NOT NULL DEFAULT TRUE,
@@ -45,6 +48,14 @@ tp_percent NUMERIC(5,2) NOT NULL DEFAULT 5.00,
                 )
             """).executeUpdate();
 
+            // Risk limits added later: nullable (no limit) on tables created before them
+            entityManager.createNativeQuery("""
+                ALTER TABLE app_settings
+                  ADD COLUMN IF NOT EXISTS alpaca_max_symbol_exposure NUMERIC(12,2),
+                  ADD COLUMN IF NOT EXISTS alpaca_max_total_exposure NUMERIC(12,2),
+                  ADD COLUMN IF NOT EXISTS alpaca_max_open_positions INTEGER
+            """).executeUpdate();
+
             entityManager.createNativeQuery("""
                 INSERT INTO app_settings
                   (id, ai_enabled, allow_forwarded, alpaca_extended_hours, alpaca_max_slippage_bps,
@@ -55,6 +66,22 @@ ON CONFLICT (id) DO NOTHING
                 """).executeUpdate();
 
             log.info("✅ app_settings is ready with a default row.");
+
+            // trade_records itself comes from the entity mapping; open trades are looked up by symbol
+            entityManager.createNativeQuery("""
+                ALTER TABLE trade_records
+                  ADD COLUMN IF NOT EXISTS exit_order_ids VARCHAR(400),
+                  ADD COLUMN IF NOT EXISTS closed_by_order_id VARCHAR(50)
+            """).executeUpdate();
+            entityManager.createNativeQuery("""
+                CREATE INDEX IF NOT EXISTS trade_records_open_symbol_idx
+                  ON trade_records (symbol) WHERE closed_at IS NULL
+            """).executeUpdate();
+            // Replayed exit fills are recognised by the order that closed the trade
+            entityManager.createNativeQuery("""
+                CREATE INDEX IF NOT EXISTS trade_records_closed_by_idx
+                  ON trade_records (closed_by_order_id) WHERE closed_by_order_id IS NOT NULL
+            """).executeUpdate();
         });
     }
 }
@@ -65,6 +65,18 @@ public class AppSettings {
     @Column(name = "alpaca_min_volume")
     private Long alpacaMinVolume = 100000L;
 
+    // Exposure limits in USD and concurrent positions; null = no limit
+    @DecimalMin(value = "0.01", message = "alpacaMaxSymbolExposure must be > 0")
+    @Column(name = "alpaca_max_symbol_exposure", precision = 12, scale = 2)
+    private BigDecimal alpacaMaxSymbolExposure;
+
+    @DecimalMin(value = "0.01", message = "alpacaMaxTotalExposure must be > 0")
+    @Column(name = "alpaca_max_total_exposure", precision = 12, scale = 2)
+    private BigDecimal alpacaMaxTotalExposure;
+
+    @Column(name = "alpaca_max_open_positions")
+    private Integer alpacaMaxOpenPositions;
+
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
@@ -0,0 +1,35 @@
+package com.mod98.alpaca.tradingbot.Model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+// How far a poller has read a time-ordered Alpaca feed, so a restart resumes where it stopped
+@Entity
+@Table(name = "poll_cursors")
+@Getter @Setter
+public class PollCursor {
+
+    @Id
+    @Column(length = 40)
+    private String name;
+
+    // Time of the newest item processed
+    @Column(name = "last_time", nullable = false)
+    private Instant lastTime;
+
+    // Id of the newest item processed
+    @Column(name = "last_id", length = 80)
+    private String lastId;
+
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+}
@@ -37,6 +37,14 @@ public class TradeRecord {
     @Column(length = 50)
     private String buyOrderId;
 
+    // Ids of the orders that can close the trade (TP/SL legs), comma separated
+    @Column(name = "exit_order_ids", length = 400)
+    private String exitOrderIds;
+
+    // The exit order that closed the trade: a fill of it seen again is already recorded
+    @Column(name = "closed_by_order_id", length = 50)
+    private String closedByOrderId;
+
     @Column(length = 20)
     private String state;
 
@@ -54,6 +54,8 @@ public class SignalParser {
             P_THABAT_FAWQ,
             P_ENTRY_EN
     );
+    // Entries confirmed by a candle close rather than a single trade
+    private static final Set<Pattern> CLOSE_PATTERNS = Set.of(P_IGLAQ_MIN, P_IGLAQ_FAWQ, P_THABAT_FAWQ);
     // Stop: Support multiple formats
     private static final Pattern STOP_P = Pattern.compile(
             "(?i)(?:^|\\s)(?:وقف(?:\\s*خسارة)?|ستوب|ايقاف(?:\\s*خسارة)?|Stop|SL)\\s*" + NUM + "(?:\\s|$)",
@@ -90,10 +92,12 @@ public static Optional<TradeSignal> parse(String raw) {
 
         // 3 - Trigger: The first match of patterns in sequence.
         BigDecimal trigger = null;
+        TriggerType triggerType = TriggerType.LAST;
         for (Pattern p : TRIGGER_PATTERNS) {
             Matcher m = p.matcher(text);
             if (m.find()) {
                 trigger = toBigDecimal(m.group(1));
+                if (CLOSE_PATTERNS.contains(p)) triggerType = TriggerType.MINUTE_CLOSE;
                 break;
             }
         }
@@ -118,7 +122,7 @@ public static Optional<TradeSignal> parse(String raw) {
         }
 
         if (trigger == null || stop == null) return Optional.empty();
-        return Optional.of(new TradeSignal(symbol, trigger, stop, targets));
+        return Optional.of(new TradeSignal(symbol, trigger, stop, targets, triggerType));
     }
 
     // ===== Helpers =====
@@ -7,5 +7,10 @@ public record TradeSignal(
         String symbol,
         BigDecimal trigger,
         BigDecimal stop,
-        List<BigDecimal> targets
-) {}
+        List<BigDecimal> targets,
+        TriggerType triggerType
+) {
+    public TradeSignal(String symbol, BigDecimal trigger, BigDecimal stop, List<BigDecimal> targets) {
+        this(symbol, trigger, stop, targets, TriggerType.LAST);
+    }
+}
@@ -0,0 +1,9 @@
+package com.mod98.alpaca.tradingbot.Parsing;
+
+// How a trigger level counts as crossed
+public enum TriggerType {
+    // Any last trade at or above the level
+    LAST,
+    // A completed 1-minute bar closing at or above the level (إغلاق دقيقة / إغلاق فوق / ثبات فوق)
+    MINUTE_CLOSE
+}
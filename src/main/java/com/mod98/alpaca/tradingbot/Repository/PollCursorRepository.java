@@ -1,10 +1,10 @@
 package com.mod98.alpaca.tradingbot.Repository;
 
-import com.mod98.alpaca.tradingbot.Model.TradeEvent;
+import com.mod98.alpaca.tradingbot.Model.PollCursor;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface TradeEventRepository extends JpaRepository<TradeEvent, Long> {
+public interface PollCursorRepository extends JpaRepository<PollCursor, String> {
 
 }
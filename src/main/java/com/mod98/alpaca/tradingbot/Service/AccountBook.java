@@ -0,0 +1,170 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// In-memory view of the Alpaca account: cash, buying power and open positions (amounts as FixedPrice).
+// Seeded once from the account and positions endpoints, then moved by our own fills and exits; a slow
+// reconciliation replaces it with Alpaca's numbers to correct drift (orders placed elsewhere, margin, fees).
+// Reads are O(1) and never touch the network.
+@Service
+public class AccountBook {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountBook.class);
+
+    // Seeding retries this often until it succeeds
+    private static final long SEED_RETRY_SECONDS = 10;
+
+    public record Position(String symbol, int qty, long avgPrice) {
+        public long notional() { return qty * avgPrice; }
+    }
+
+    private final AlpacaClient alpaca;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, Position> positions = new HashMap<>(); // guarded by this
+    private long cash;                                               // guarded by this
+    private long buyingPower;                                        // guarded by this
+    private long exposure;                                           // guarded by this, at cost
+    private long version;                                            // guarded by this, bumped by fills and exits
+    private volatile boolean seeded;
+
+    @Autowired
+    public AccountBook(AlpacaClient alpaca, AlpacaProperties props) {
+        this(alpaca, props.getAccountReconcileIntervalMs());
+    }
+
+    // reconcileMillis <= 0: seeded once, then only moved by fills and exits
+    public AccountBook(AlpacaClient alpaca, long reconcileMillis) {
+        this.alpaca = alpaca;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AccountBook");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.execute(this::seed);
+        if (reconcileMillis > 0) {
+            scheduler.scheduleWithFixedDelay(this::reconcile, reconcileMillis, reconcileMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isSeeded() { return seeded; }
+
+    public synchronized long cash() { return cash; }
+
+    public synchronized long buyingPower() { return buyingPower; }
+
+    // For sizing: null until the book is seeded
+    public BigDecimal buyingPowerUsd() {
+        return seeded ? FixedPrice.toBigDecimal(buyingPower()) : null;
+    }
+
+    public synchronized Position position(String symbol) { return positions.get(symbol); }
+
+    // Notional held in the symbol, at cost
+    public synchronized long exposure(String symbol) {
+        Position p = positions.get(symbol);
+        return p == null ? 0 : p.notional();
+    }
+
+    public synchronized long totalExposure() { return exposure; }
+
+    public synchronized int openPositions() { return positions.size(); }
+
+    // Our entry filled: qty more shares at price
+    public synchronized void onFill(String symbol, int qty, long price) {
+        if (qty <= 0) return;
+        Position p = positions.get(symbol);
+        int held = p == null ? 0 : p.qty();
+        long cost = (p == null ? 0 : p.notional()) + qty * price;
+        positions.put(symbol, new Position(symbol, held + qty, cost / (held + qty)));
+        cash -= qty * price;
+        buyingPower -= qty * price;
+        exposure += qty * price;
+        version++;
+    }
+
+    // Our exit filled: qty shares sold at price
+    public synchronized void onExit(String symbol, int qty, long price) {
+        if (qty <= 0) return;
+        Position p = positions.get(symbol);
+        if (p != null) {
+            int sold = Math.min(qty, p.qty());
+            exposure -= sold * p.avgPrice();
+            if (sold == p.qty()) positions.remove(symbol);
+            else positions.put(symbol, new Position(symbol, p.qty() - sold, p.avgPrice()));
+        }
+        cash += qty * price;
+        buyingPower += qty * price;
+        version++;
+    }
+
+    private void seed() {
+        reconcile();
+        if (!seeded) scheduler.schedule(this::seed, SEED_RETRY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Replace the book with Alpaca's view; skipped when a fill or exit landed while it was being read
+    // (the next round gets a consistent picture)
+    private void reconcile() {
+        long before;
+        synchronized (this) { before = version; }
+        try {
+            JsonNode account = alpaca.getAccountAsync().join();
+            JsonNode list = alpaca.getPositionsAsync().join();
+            apply(before, account, list);
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Account {} failed: {}", seeded ? "reconciliation" : "seeding", AlpacaClient.unwrap(e).getMessage());
+        }
+    }
+
+    private synchronized void apply(long before, JsonNode account, JsonNode list) {
+        if (seeded && version != before) {
+            log.debug("Account reconciliation skipped: fills or exits arrived meanwhile");
+            return;
+        }
+        Map<String, Position> fresh = new HashMap<>();
+        long freshExposure = 0;
+        for (JsonNode n : list) {
+            String symbol = n.path("symbol").asText("");
+            int qty = new BigDecimal(n.path("qty").asText("0")).intValue();
+            if (symbol.isEmpty() || qty == 0) continue;
+            Position p = new Position(symbol, qty, FixedPrice.of(new BigDecimal(n.path("avg_entry_price").asText("0"))));
+            fresh.put(symbol, p);
+            freshExposure += p.notional();
+        }
+        long freshCash = FixedPrice.of(new BigDecimal(account.path("cash").asText("0")));
+        long freshBuyingPower = FixedPrice.of(new BigDecimal(account.path("buying_power").asText("0")));
+
+        if (!seeded) {
+            log.info("💼 Account seeded: cash {}, buying power {}, {} position(s)",
+                    FixedPrice.toString(freshCash), FixedPrice.toString(freshBuyingPower), fresh.size());
+        } else if (freshBuyingPower != buyingPower || !fresh.equals(positions)) {
+            log.info("🔄 Account reconciled: buying power {} -> {}, positions {} -> {}",
+                    FixedPrice.toString(buyingPower), FixedPrice.toString(freshBuyingPower), positions.size(), fresh.size());
+        }
+        positions.clear();
+        positions.putAll(fresh);
+        cash = freshCash;
+        buyingPower = freshBuyingPower;
+        exposure = freshExposure;
+        seeded = true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -3,10 +3,18 @@
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.net.URI;
@@ -17,28 +25,86 @@
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
 
 @Service
 public class AlpacaClient {
 
+    private static final Logger log = LoggerFactory.getLogger(AlpacaClient.class);
+
     private final String keyId;
     private final String secretKey;
     private final String baseUrl;
     private final String dataUrl;
+    private final String baseAuthority;
+    private final String dataAuthority;
 
-    private static final int MAX_RETRIES = 2;
+    // Keeps the multi-symbol query string well below URL length limits
+    private static final int MAX_SYMBOLS_PER_REQUEST = 100;
 
+    // HTTP/2 when the server offers it: one multiplexed connection per host, falls back to HTTP/1.1
     private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
             .connectTimeout(Duration.ofSeconds(10))
             .build();
 
+    // Longest a single HTTP attempt may take before it fails
+    public static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(20);
+
+    // Idle time after which a connection is assumed closed by the server side (the next request pays a handshake)
+    public static final long CONNECTION_IDLE_MILLIS = 60_000;
+
+    // The two hosts behind baseUrl and dataUrl, each with its own pooled connection
+    public enum Host { TRADING, DATA }
+
+    private final long[] lastExchangeAt = new long[Host.values().length]; // nanoTime, 0 = never; guarded by itself
+    private final HttpClient.Version[] negotiated = new HttpClient.Version[Host.values().length];
+    private final Map<RequestClass, CircuitBreaker> breakers = new EnumMap<>(RequestClass.class);
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private MeterRegistry meterRegistry;
+    private Counter[] warmCounters;
+    private Counter[] coldCounters;
+
     private final ObjectMapper mapper = new ObjectMapper();
+    private final AlpacaRateLimiter limiter;
+    private final Map<RequestClass, RetryPolicy> retryPolicies = new EnumMap<>(RequestClass.class);
 
-    @Autowired
     public AlpacaClient(AlpacaProperties props) {
+        this(props, new AlpacaRateLimiter(props.getRateLimitPerMinute(), props.getRateLimitBurst()));
+    }
+
+    public AlpacaClient(AlpacaProperties props, AlpacaRateLimiter limiter) {
+        this(props, limiter, null);
+    }
+
+    @Autowired
+    public AlpacaClient(AlpacaProperties props, AlpacaRateLimiter limiter, ObjectProvider<MeterRegistry> meters) {
+        this.limiter = limiter;
+        for (RequestClass cls : RequestClass.values()) {
+            breakers.put(cls, new CircuitBreaker(cls, props.getCircuitBreaker()));
+        }
+        MeterRegistry registry = meters == null ? null : meters.getIfAvailable();
+        if (registry != null) bindMetrics(registry);
+        Map<RequestClass, AlpacaProperties.Retry> retry = PropertyKeys.byEnum(RequestClass.class, props.getRetry(), "alpaca.retry");
+        for (RequestClass cls : RequestClass.values()) {
+            retryPolicies.put(cls, RetryPolicy.of(cls, retry.get(cls)));
+        }
         this.keyId = props.getApiKeyId();
         this.secretKey = props.getApiSecretKey();
         this.baseUrl = props.getBaseUrl();
@@ -47,6 +113,8 @@ public AlpacaClient(AlpacaProperties props) {
         if (keyId == null || secretKey == null || baseUrl == null || dataUrl == null) {
             throw new IllegalStateException("AlpacaProperties is not fully configured");
         }
+        this.baseAuthority = URI.create(baseUrl).getAuthority();
+        this.dataAuthority = URI.create(dataUrl).getAuthority();
         try {
             JsonNode acc = getAccount();
             System.out.println("Alpaca API connected successfully. Account ID: " + acc.path("id").asText("unknown"));
@@ -55,47 +123,196 @@ public AlpacaClient(AlpacaProperties props) {
         }
     }
 
+    // ---- Connection keep-alive ----
+    // Cheapest authenticated request per host, to open or keep its connection (and TLS session) alive
+    public CompletableFuture<Void> pingAsync(Host host) {
+        String url = host == Host.TRADING ? baseUrl + "/v2/clock" : dataUrl + "/stocks/meta/exchanges";
+        return send(RequestClass.HOUSEKEEPING, "keepalive", "GET", url, null).thenAccept(r -> {});
+    }
+
+    // Millis since the last response from this host, Long.MAX_VALUE before the first one
+    public long idleMillis(Host host) {
+        long at;
+        synchronized (lastExchangeAt) {
+            at = lastExchangeAt[host.ordinal()];
+        }
+        return at == 0 ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - at);
+    }
+
+    // Same authority means same connection: then everything counts as TRADING
+    private Host hostOf(HttpRequest req) {
+        String authority = req.uri().getAuthority();
+        return authority != null && authority.equals(dataAuthority) && !authority.equals(baseAuthority)
+                ? Host.DATA : Host.TRADING;
+    }
+
+    // Before sending: a host heard from within CONNECTION_IDLE_MILLIS most likely still has its connection
+    private void countConnection(Host host) {
+        Counter[] counters = idleMillis(host) < CONNECTION_IDLE_MILLIS ? warmCounters : coldCounters;
+        if (counters != null) counters[host.ordinal()].increment();
+    }
+
+    private void exchanged(Host host, HttpResponse<?> resp) {
+        synchronized (lastExchangeAt) {
+            lastExchangeAt[host.ordinal()] = System.nanoTime();
+            if (negotiated[host.ordinal()] == resp.version()) return;
+            negotiated[host.ordinal()] = resp.version();
+        }
+        log.info("🔌 Alpaca {} host speaks {}", host.name().toLowerCase(), resp.version());
+    }
+
+    // Open and not yet due for a probe: callers should pause instead of sending
+    public boolean isCircuitOpen(RequestClass cls) {
+        return breakers.get(cls).isOpen();
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        meterRegistry = registry;
+        for (RequestClass cls : RequestClass.values()) {
+            CircuitBreaker breaker = breakers.get(cls);
+            Gauge.builder("alpaca.circuit.state", breaker, b -> b.state().ordinal())
+                    .description("0 closed, 1 open, 2 half-open").tag("class", cls.name().toLowerCase()).register(registry);
+        }
+        warmCounters = new Counter[Host.values().length];
+        coldCounters = new Counter[Host.values().length];
+        for (Host host : Host.values()) {
+            String tag = host.name().toLowerCase();
+            warmCounters[host.ordinal()] = Counter.builder("alpaca.http.connection").tag("host", tag).tag("state", "warm")
+                    .description("Requests sent while the host connection was still warm").register(registry);
+            coldCounters[host.ordinal()] = Counter.builder("alpaca.http.connection").tag("host", tag).tag("state", "cold")
+                    .description("Requests that likely opened a new connection (TLS handshake)").register(registry);
+        }
+    }
+
     // ---- Public APIs (Account information) ----
+    // Every call has a CompletableFuture version (no thread held while waiting, retries are scheduled);
+    // the blocking versions just wait for it.
     public JsonNode getAccount() throws IOException, InterruptedException {
-        String url = baseUrl + "/v2/account";
-        HttpResponse<String> r = sendWithRetry(req("GET", url, null).build(), MAX_RETRIES);
-        ensure2xx(r);
-        return mapper.readTree(r.body());
+        return await(getAccountAsync());
     }
 
-    // Last trading price
-    public BigDecimal getLastTradePrice(String symbol) throws IOException, InterruptedException {
-        String url = dataUrl + "/stocks/" + symbol + "/trades/latest";
-        HttpResponse<String> r = sendWithRetry(req("GET", url, null).build(), MAX_RETRIES);
-        ensure2xx(r);
-        JsonNode p = mapper.readTree(r.body()).path("trade").path("p");
-        if (!p.isNumber()) {
-            throw new IllegalStateException("No latest trade price for: " + symbol);
-        }
-        return p.decimalValue();
+    public CompletableFuture<JsonNode> getAccountAsync() {
+        return sendJson(RequestClass.HOUSEKEEPING, "account", "GET", baseUrl + "/v2/account", null);
     }
 
-    // Latest bid/ask
+    // Open positions: [{"symbol","qty","avg_entry_price",..}]
+    public CompletableFuture<JsonNode> getPositionsAsync() {
+        return sendJson(RequestClass.HOUSEKEEPING, "positions", "GET", baseUrl + "/v2/positions", null);
+    }
+
+    // Last trading price (FixedPrice)
+    public long getLastTradePrice(String symbol) throws IOException, InterruptedException {
+        return await(getLastTradePriceAsync(symbol));
+    }
+
+    public CompletableFuture<Long> getLastTradePriceAsync(String symbol) {
+        return sendBody(RequestClass.FILL, "last_trade", "GET", dataUrl + "/stocks/" + symbol + "/trades/latest", null).thenApply(body -> {
+            long p = AlpacaDecoders.latestTradePrice(body);
+            if (p < 0) {
+                throw new IllegalStateException("No latest trade price for: " + symbol);
+            }
+            return p;
+        });
+    }
+
+    // Latest bid/ask (FixedPrice)
     public static final class Quote {
-        public final BigDecimal bid;
-        public final BigDecimal ask;
-        public Quote(BigDecimal bid, BigDecimal ask) { this.bid = bid; this.ask = ask; }
+        public final long bid;
+        public final long ask;
+        public Quote(long bid, long ask) { this.bid = bid; this.ask = ask; }
     }
 
     public Quote getLastQuote(String symbol) throws IOException, InterruptedException {
-        String url = dataUrl + "/stocks/" + symbol + "/quotes/latest";
-        HttpResponse<String> r = sendWithRetry(req("GET", url, null).build(), MAX_RETRIES);
-        ensure2xx(r);
-        JsonNode root = mapper.readTree(r.body()).path("quote");
-        BigDecimal bid = root.path("bp").isNumber() ? root.path("bp").decimalValue() : null;
-        BigDecimal ask = root.path("ap").isNumber() ? root.path("ap").decimalValue() : null;
-        if (bid == null || ask == null)
-            throw new IllegalStateException("No quote for: " + symbol);
-        return new Quote(bid, ask);
+        return await(getLastQuoteAsync(symbol));
+    }
+
+    public CompletableFuture<Quote> getLastQuoteAsync(String symbol) {
+        return sendBody(RequestClass.FILL, "last_quote", "GET", dataUrl + "/stocks/" + symbol + "/quotes/latest", null).thenApply(body -> {
+            Quote q = AlpacaDecoders.latestQuote(body);
+            if (q == null)
+                throw new IllegalStateException("No quote for: " + symbol);
+            return q;
+        });
+    }
+
+    // Snapshot: latest trade + latest quote (FixedPrice, 0 when missing) + today's volume
+    public record Snapshot(long lastPrice, long bid, long ask, long dailyVolume) {}
+
+    // One symbol's snapshot for an execution in progress (pre-trade checks): FILL class, never shed
+    public CompletableFuture<Snapshot> getSnapshotAsync(String symbol) {
+        return sendBody(RequestClass.FILL, "snapshot", "GET", dataUrl + "/stocks/" + symbol + "/snapshot", null).thenApply(body -> {
+            Snapshot s = AlpacaDecoders.snapshot(body);
+            if (s == null || s.ask() <= 0)
+                throw new IllegalStateException("No snapshot for: " + symbol);
+            return s;
+        });
+    }
+
+    // ---- Batch market data (one request per 100 symbols, sent concurrently) ----
+
+    // Last trading price for many symbols, handed to sink as FixedPrice (no boxing)
+    public void getLatestTradePrices(Collection<String> symbols, ObjLongConsumer<String> sink)
+            throws IOException, InterruptedException {
+        await(getLatestTradePricesAsync(symbols, sink));
+    }
+
+    // The sink is called from HTTP completion threads, once per symbol that has a price
+    public CompletableFuture<Void> getLatestTradePricesAsync(Collection<String> symbols, ObjLongConsumer<String> sink) {
+        return forEachBatch(symbols, "latest_trades", "/stocks/trades/latest", body -> AlpacaDecoders.latestTradePrices(body, sink));
+    }
+
+    // Latest bid/ask for many symbols
+    public Map<String, Quote> getLatestQuotes(Collection<String> symbols)
+            throws IOException, InterruptedException {
+        return await(getLatestQuotesAsync(symbols));
+    }
+
+    public CompletableFuture<Map<String, Quote>> getLatestQuotesAsync(Collection<String> symbols) {
+        Map<String, Quote> out = new ConcurrentHashMap<>();
+        return forEachBatch(symbols, "latest_quotes", "/stocks/quotes/latest", body -> AlpacaDecoders.latestQuotes(body, out))
+                .thenApply(v -> out);
+    }
+
+    // Trade + quote + daily volume for many symbols
+    public Map<String, Snapshot> getSnapshots(Collection<String> symbols)
+            throws IOException, InterruptedException {
+        return await(getSnapshotsAsync(symbols));
+    }
+
+    public CompletableFuture<Map<String, Snapshot>> getSnapshotsAsync(Collection<String> symbols) {
+        Map<String, Snapshot> out = new ConcurrentHashMap<>();
+        return forEachBatch(symbols, "snapshots", "/stocks/snapshots", body -> AlpacaDecoders.snapshots(body, out))
+                .thenApply(v -> out);
+    }
+
+    // One GET per symbol chunk, all in flight together; completes when every chunk has been handled
+    private CompletableFuture<Void> forEachBatch(Collection<String> symbols, String op, String path,
+                                                 Consumer<byte[]> handler) {
+        List<String> batches = symbolBatches(symbols);
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[batches.size()];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = sendBody(RequestClass.MARKET_DATA, op, "GET", dataUrl + path + "?symbols=" + encode(batches.get(i)), null).thenAccept(handler);
+        }
+        return CompletableFuture.allOf(calls);
+    }
+
+    // Split symbols into comma-separated chunks of MAX_SYMBOLS_PER_REQUEST
+    private static List<String> symbolBatches(Collection<String> symbols) {
+        List<String> out = new ArrayList<>();
+        Iterator<String> it = symbols.iterator();
+        while (it.hasNext()) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < MAX_SYMBOLS_PER_REQUEST && it.hasNext(); i++) {
+                if (i > 0) sb.append(',');
+                sb.append(it.next());
+            }
+            out.add(sb.toString());
+        }
+        return out;
     }
 
     // Price profiling (fractional accuracy)
-    private BigDecimal normalizePrice(BigDecimal px) {
+    public static BigDecimal normalizePrice(BigDecimal px) {
         if (px == null) return null;
         return px.compareTo(BigDecimal.ONE) >= 0
                 ? px.setScale(2, RoundingMode.HALF_UP)
@@ -105,29 +322,89 @@ private BigDecimal normalizePrice(BigDecimal px) {
     // Buy entry
     public JsonNode placeMarketableLimitBuy(String symbol, int qty, BigDecimal limitPrice, boolean extendedHours)
             throws IOException, InterruptedException {
-        String url = baseUrl + "/v2/orders";
+        return await(placeMarketableLimitBuyAsync(symbol, qty, limitPrice, extendedHours));
+    }
+
+    public CompletableFuture<JsonNode> placeMarketableLimitBuyAsync(String symbol, int qty, BigDecimal limitPrice,
+                                                                   boolean extendedHours) {
+        return placeMarketableLimitBuyAsync(symbol, qty, limitPrice, extendedHours, UUID.randomUUID().toString(), null);
+    }
+
+    // clientOrderId must stay the same for every submission of this order; retries stop at deadline
+    public CompletableFuture<JsonNode> placeMarketableLimitBuyAsync(String symbol, int qty, BigDecimal limitPrice,
+                                                                   boolean extendedHours, String clientOrderId,
+                                                                   Instant deadline) {
         BigDecimal lp = normalizePrice(limitPrice);
-        String body = mapper.writeValueAsString(Map.of(
+        return submitOrder(Map.of(
                 "symbol", symbol,
                 "qty", String.valueOf(qty),
                 "side", "buy",
                 "type", "limit",
                 "time_in_force", "day",
                 "limit_price", lp.toPlainString(),
-                "extended_hours", extendedHours
-        ));
-        HttpResponse<String> r = sendWithRetry(req("POST", url, body).build(), MAX_RETRIES);
-        ensure2xx(r);
-        return mapper.readTree(r.body());
+                "extended_hours", extendedHours,
+                "client_order_id", clientOrderId
+        ), clientOrderId, deadline);
+    }
+
+    // Entry + take-profit + stop-loss in one submission: the exits are held by Alpaca until the entry fills,
+    // so the position is protected from its first share. GTC keeps the exit legs alive past the session.
+    // Alpaca takes no bracket orders in extended hours.
+    public CompletableFuture<JsonNode> placeBracketBuyAsync(String symbol, int qty, BigDecimal limitPrice,
+                                                           BigDecimal takeProfitLimitPrice, BigDecimal stopLossStopPrice,
+                                                           String clientOrderId, Instant deadline) {
+        BigDecimal lp = normalizePrice(limitPrice);
+        BigDecimal tp = normalizePrice(takeProfitLimitPrice);
+        BigDecimal sl = normalizePrice(stopLossStopPrice);
+        return submitOrder(Map.of(
+                "symbol", symbol,
+                "qty", String.valueOf(qty),
+                "side", "buy",
+                "type", "limit",
+                "time_in_force", "gtc",
+                "limit_price", lp.toPlainString(),
+                "order_class", "bracket",
+                "take_profit", Map.of("limit_price", tp.toPlainString()),
+                "stop_loss", Map.of("stop_price", sl.toPlainString()),
+                "client_order_id", clientOrderId
+        ), clientOrderId, deadline);
+    }
+
+    // Id of the take-profit (limit) leg in a bracket/OCO order response, or null
+    public static String takeProfitLegId(JsonNode order) {
+        for (JsonNode leg : order.path("legs")) {
+            if ("limit".equalsIgnoreCase(leg.path("type").asText(""))) return leg.path("id").asText(null);
+        }
+        return null;
+    }
+
+    // Ids of the legs of a bracket/OCO order response (the OCO's own id is its take-profit)
+    public static List<String> legIds(JsonNode order) {
+        List<String> ids = new ArrayList<>();
+        for (JsonNode leg : order.path("legs")) {
+            String id = leg.path("id").asText("");
+            if (!id.isEmpty()) ids.add(id);
+        }
+        return ids;
     }
 
     // Exit (profit or loss)
     public JsonNode placeOCO(String symbol, int qty, BigDecimal takeProfitLimitPrice, BigDecimal stopLossStopPrice)
             throws IOException, InterruptedException {
-        String url = baseUrl + "/v2/orders";
+        return await(placeOCOAsync(symbol, qty, takeProfitLimitPrice, stopLossStopPrice));
+    }
+
+    public CompletableFuture<JsonNode> placeOCOAsync(String symbol, int qty, BigDecimal takeProfitLimitPrice,
+                                                     BigDecimal stopLossStopPrice) {
+        return placeOCOAsync(symbol, qty, takeProfitLimitPrice, stopLossStopPrice, UUID.randomUUID().toString(), null);
+    }
+
+    public CompletableFuture<JsonNode> placeOCOAsync(String symbol, int qty, BigDecimal takeProfitLimitPrice,
+                                                     BigDecimal stopLossStopPrice, String clientOrderId,
+                                                     Instant deadline) {
         BigDecimal tp = normalizePrice(takeProfitLimitPrice);
         BigDecimal sl = normalizePrice(stopLossStopPrice);
-        String body = mapper.writeValueAsString(Map.of(
+        return submitOrder(Map.of(
                 "symbol", symbol,
                 "qty", String.valueOf(qty),
                 "side", "sell",
@@ -135,57 +412,154 @@ public JsonNode placeOCO(String symbol, int qty, BigDecimal takeProfitLimitPrice
                 "time_in_force", "gtc",
                 "order_class", "oco",
                 "take_profit", Map.of("limit_price", tp.toPlainString()),
-                "stop_loss", Map.of("stop_price", sl.toPlainString())
-        ));
-        HttpResponse<String> r = sendWithRetry(req("POST", url, body).build(), MAX_RETRIES);
-        ensure2xx(r);
-        return mapper.readTree(r.body());
+                "stop_loss", Map.of("stop_price", sl.toPlainString()),
+                "client_order_id", clientOrderId
+        ), clientOrderId, deadline);
+    }
+
+    // POST an order that carries a client_order_id, so resubmitting it is safe: when an earlier attempt
+    // was accepted but its response lost, Alpaca answers 422 (duplicate id) and the existing order is returned
+    private CompletableFuture<JsonNode> submitOrder(Map<String, Object> order, String clientOrderId, Instant deadline) {
+        return exchange(RequestClass.ORDER, "submit_order", "POST", baseUrl + "/v2/orders", order, deadline, true).thenCompose(r -> {
+            if (r.statusCode() == 422 && text(r).contains("client_order_id")) {
+                return getOrderByClientIdAsync(clientOrderId);
+            }
+            ensure2xx(r);
+            return CompletableFuture.completedFuture(readJson(r.body()));
+        });
+    }
+
+    public CompletableFuture<JsonNode> getOrderByClientIdAsync(String clientOrderId) {
+        return sendJson(RequestClass.ORDER, "order_by_client_id", "GET",
+                baseUrl + "/v2/orders:by_client_order_id?client_order_id=" + encode(clientOrderId), null);
+    }
+
+    // The order submitted under clientOrderId, or null when Alpaca never accepted one (404)
+    public CompletableFuture<JsonNode> findOrderByClientIdAsync(String clientOrderId) {
+        return exchange(RequestClass.ORDER, "order_by_client_id", "GET",
+                baseUrl + "/v2/orders:by_client_order_id?client_order_id=" + encode(clientOrderId), null, null, false)
+                .thenApply(r -> {
+                    if (r.statusCode() == 404) return null;
+                    ensure2xx(r);
+                    return readJson(r.body());
+                });
+    }
+
+    // Move the limit price of an open order (e.g. a take-profit leg); Alpaca answers with the replacing order
+    public JsonNode replaceOrderLimit(String orderId, BigDecimal limitPrice) throws IOException, InterruptedException {
+        return await(replaceOrderLimitAsync(orderId, limitPrice));
+    }
+
+    public CompletableFuture<JsonNode> replaceOrderLimitAsync(String orderId, BigDecimal limitPrice) {
+        return sendJson(RequestClass.ORDER, "replace_order", "PATCH", baseUrl + "/v2/orders/" + orderId,
+                Map.of("limit_price", normalizePrice(limitPrice).toPlainString()));
     }
 
     // Cancel your Order
     public void cancelOrder(String orderId) throws IOException, InterruptedException {
-        String url = baseUrl + "/v2/orders/" + orderId;
-        HttpResponse<String> r = sendWithRetry(req("DELETE", url, null).build(), MAX_RETRIES);
-        ensure2xx(r);
+        await(cancelOrderAsync(orderId));
+    }
+
+    public CompletableFuture<Void> cancelOrderAsync(String orderId) {
+        return send(RequestClass.ORDER, "cancel_order", "DELETE", baseUrl + "/v2/orders/" + orderId, null).thenAccept(r -> {});
     }
 
     // Average execution price
     public BigDecimal getOrderAvgFillPrice(String orderId) throws IOException, InterruptedException {
-        String url = baseUrl + "/v2/orders/" + orderId;
-        HttpResponse<String> r = sendWithRetry(req("GET", url, null).build(), MAX_RETRIES);
-        ensure2xx(r);
-        JsonNode root = mapper.readTree(r.body());
-        String status = root.path("status").asText("");
-        if ("filled".equalsIgnoreCase(status) || "partially_filled".equalsIgnoreCase(status)) {
-            JsonNode p = root.path("filled_avg_price");
-            if (!p.isMissingNode() && !p.isNull() && !p.asText().isBlank()) {
-                return new BigDecimal(p.asText());
-            }
+        return await(getOrderAvgFillPriceAsync(orderId));
+    }
+
+    public CompletableFuture<BigDecimal> getOrderAvgFillPriceAsync(String orderId) {
+        return getOrderStatusAsync(orderId).thenApply(o ->
+                "filled".equalsIgnoreCase(o.status()) || "partially_filled".equalsIgnoreCase(o.status())
+                        ? o.avgFillPrice() : null);
+    }
+
+    // Order progress (status, filled quantity, average fill price)
+    public record OrderStatus(String status, int filledQty, BigDecimal avgFillPrice) {
+        public boolean isFilled() { return "filled".equalsIgnoreCase(status); }
+        // Will never fill any further
+        public boolean isDone() {
+            return switch (status.toLowerCase()) {
+                case "filled", "canceled", "expired", "rejected", "done_for_day", "replaced" -> true;
+                default -> false;
+            };
         }
-        return null;
+    }
+
+    public OrderStatus getOrderStatus(String orderId) throws IOException, InterruptedException {
+        return await(getOrderStatusAsync(orderId));
+    }
+
+    public CompletableFuture<OrderStatus> getOrderStatusAsync(String orderId) {
+        return sendBody(RequestClass.FILL, "order_status", "GET", baseUrl + "/v2/orders/" + orderId, null)
+                .thenApply(AlpacaDecoders::orderStatus);
     }
 
     // Fetch orders
     public JsonNode listOrders(String status, String side, Instant since, int limit)
             throws IOException, InterruptedException {
+        return await(listOrdersAsync(status, side, since, limit));
+    }
+
+    public CompletableFuture<JsonNode> listOrdersAsync(String status, String side, Instant since, int limit) {
+        return sendJson(RequestClass.HOUSEKEEPING, "list_orders", "GET", ordersUrl(status, side, since, limit), null);
+    }
+
+    // The fields of an order the bot reads, decoded without building a tree. Lists include the nested
+    // legs as orders of their own, right after their parent.
+    public record OrderSummary(String id, String clientOrderId, String symbol, String side, String type,
+                               String status, int filledQty, BigDecimal filledAvgPrice) {
+        public boolean isFilled() { return "filled".equalsIgnoreCase(status); }
+    }
+
+    public List<OrderSummary> listOrderSummaries(String status, String side, Instant since, int limit)
+            throws IOException, InterruptedException {
+        return await(listOrderSummariesAsync(status, side, since, limit));
+    }
+
+    public CompletableFuture<List<OrderSummary>> listOrderSummariesAsync(String status, String side, Instant since, int limit) {
+        return sendBody(RequestClass.HOUSEKEEPING, "list_orders", "GET", ordersUrl(status, side, since, limit), null)
+                .thenApply(AlpacaDecoders::orders);
+    }
+
+    // One order, decoded like the list entries (legs left out)
+    public CompletableFuture<OrderSummary> getOrderSummaryAsync(String orderId) {
+        return sendBody(RequestClass.HOUSEKEEPING, "order_summary", "GET", baseUrl + "/v2/orders/" + orderId, null)
+                .thenApply(AlpacaDecoders::orderSummary);
+    }
+
+    // One execution from /v2/account/activities/FILL; leavesQty == 0 when it completed its order
+    public record FillActivity(String id, Instant transactionTime, String symbol, String side, String orderId,
+                               int qty, BigDecimal price, int leavesQty) {}
+
+    // Fills after a point in time, oldest first. pageToken (the id of the last activity read) resumes a page
+    // boundary; a page shorter than pageSize is the last one.
+    public CompletableFuture<List<FillActivity>> getFillActivitiesAsync(Instant after, String pageToken, int pageSize) {
+        String url = baseUrl + "/v2/account/activities/FILL?direction=asc&page_size=" + pageSize
+                + "&after=" + encode(DateTimeFormatter.ISO_INSTANT.format(after))
+                + (pageToken != null ? "&page_token=" + encode(pageToken) : "");
+        return sendBody(RequestClass.HOUSEKEEPING, "fill_activities", "GET", url, null)
+                .thenApply(AlpacaDecoders::fillActivities);
+    }
+
+    private String ordersUrl(String status, String side, Instant since, int limit) {
         String base = baseUrl + "/v2/orders?status=" + encode(status)
-                + "&side=" + encode(side)
+                + (side != null ? "&side=" + encode(side) : "")
                 + "&limit=" + limit
                 + "&nested=true";
         if (since != null) {
             String after = DateTimeFormatter.ISO_INSTANT.format(since);
             base += "&after=" + encode(after);
         }
-        HttpResponse<String> r = sendWithRetry(req("GET", base, null).build(), MAX_RETRIES);
-        ensure2xx(r);
-        return mapper.readTree(r.body());
+        return base;
     }
 
     // ---- Helpers ----
     private HttpRequest.Builder req(String method, String url, String jsonBody) {
         HttpRequest.Builder b = HttpRequest.newBuilder()
                 .uri(URI.create(url))
-                .timeout(Duration.ofSeconds(20))
+                .timeout(REQUEST_TIMEOUT)
                 .header("APCA-API-KEY-ID", keyId)
                 .header("APCA-API-SECRET-KEY", secretKey)
                 .header("Content-Type", "application/json")
@@ -201,33 +575,176 @@ private HttpRequest.Builder req(String method, String url, String jsonBody) {
         return b.method(method, HttpRequest.BodyPublishers.ofString(jsonBody == null ? "{}" : jsonBody));
     }
 
-    // Send with retry for temporary network/server conditions
-    private HttpResponse<String> sendWithRetry(HttpRequest req, int maxRetries)
-            throws IOException, InterruptedException {
-        int attempt = 0;
-        while (true) {
-            try {
-                HttpResponse<String> resp = http.send(req, HttpResponse.BodyHandlers.ofString());
-                int code = resp.statusCode();
-                // Retry on 429 (Rate limit) or 5xx (Server) codes
-                if (code == 429 || code >= 500) {
-                    if (attempt >= maxRetries) return resp; // let ensure2xx handle it
-                    Thread.sleep(2000L * (attempt + 1));
-                    attempt++;
-                    continue;
-                }
-                return resp;
-            } catch (IOException e) {
-                if (attempt >= maxRetries) throw e;
-                Thread.sleep(2000L * (attempt + 1));
-                attempt++;
+    // Request + 2xx check + JSON body; body is serialized to JSON when not null
+    private CompletableFuture<JsonNode> sendJson(RequestClass cls, String op, String method, String url, Object body) {
+        return send(cls, op, method, url, body).thenApply(r -> readJson(r.body()));
+    }
+
+    // Request + 2xx check + raw UTF-8 body, for the streaming decoders of the hot calls
+    private CompletableFuture<byte[]> sendBody(RequestClass cls, String op, String method, String url, Object body) {
+        return send(cls, op, method, url, body).thenApply(HttpResponse::body);
+    }
+
+    private JsonNode readJson(byte[] body) {
+        try {
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(RequestClass cls, String op, String method, String url,
+                                                         Object body) {
+        return exchange(cls, op, method, url, body, null, false).thenApply(r -> {
+            ensure2xx(r);
+            return r;
+        });
+    }
+
+    // Request with the retry policy of its class, without the 2xx check. Retries stop at the deadline
+    // (or the policy's max elapsed time). A POST is only retried on 429 unless it carries a stable
+    // client_order_id (resubmitSafe), since a lost response may hide an accepted order.
+    private CompletableFuture<HttpResponse<byte[]>> exchange(RequestClass cls, String op, String method, String url, Object body,
+                                                             Instant deadline, boolean resubmitSafe) {
+        HttpRequest request;
+        try {
+            request = req(method, url, body == null ? null : mapper.writeValueAsString(body)).build();
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        RetryPolicy policy = retryPolicies.get(cls);
+        long now = System.nanoTime();
+        long deadlineNanos = deadline != null
+                ? now + Math.max(0, Duration.between(Instant.now(), deadline).toNanos())
+                : now + TimeUnit.MILLISECONDS.toNanos(policy.maxElapsedMs());
+        boolean idempotent = resubmitSafe || !"POST".equalsIgnoreCase(method) && !"PATCH".equalsIgnoreCase(method);
+        return sendAttempt(cls, op, policy, request, idempotent, 0, 0, deadlineNanos);
+    }
+
+    // Each attempt first passes the circuit breaker of its class, then takes a token from the shared
+    // rate limiter; the wait before a retry is a delayed re-send, so no thread sleeps meanwhile
+    private CompletableFuture<HttpResponse<byte[]>> sendAttempt(RequestClass cls, String op, RetryPolicy policy,
+                                                                HttpRequest req, boolean idempotent, int attempt,
+                                                                long prevDelayMs, long deadlineNanos) {
+        CircuitBreaker breaker = breakers.get(cls);
+        if (!breaker.tryAcquire()) return CompletableFuture.failedFuture(new CircuitBreaker.OpenException(cls));
+        Host host = hostOf(req);
+        long[] sentAt = new long[1];
+        return limiter.acquire(cls)
+                .thenCompose(v -> {
+                    countConnection(host);
+                    sentAt[0] = System.nanoTime();
+                    return http.sendAsync(req, HttpResponse.BodyHandlers.ofByteArray());
+                })
+                .handle((resp, err) -> {
+                    if (resp != null) exchanged(host, resp);
+                    Throwable cause = unwrap(err);
+                    int code = resp != null ? resp.statusCode() : 0;
+                    if (code == 429) limiter.onThrottled();
+                    // I/O errors and 5xx may have reached the server; 429 never did
+                    boolean transientFailure = cause instanceof IOException || code >= 500;
+                    if (sentAt[0] == 0) {
+                        breaker.release(); // shed by the rate limiter, never sent
+                    } else {
+                        long latency = System.nanoTime() - sentAt[0];
+                        breaker.onResult(transientFailure, latency);
+                        if (meterRegistry != null) {
+                            timer(op, cause != null ? "io_error" : outcome(code)).record(latency, TimeUnit.NANOSECONDS);
+                        }
+                    }
+                    boolean retry = attempt < policy.maxRetries() && (code == 429 || transientFailure && idempotent);
+                    long delayMs = 0;
+                    if (retry) {
+                        delayMs = Math.max(policy.nextDelayMs(prevDelayMs), serverDelayMs(resp));
+                        retry = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) < deadlineNanos;
+                    }
+                    if (!retry) {
+                        // A final 429/5xx is left to the caller's status check
+                        return cause != null
+                                ? CompletableFuture.<HttpResponse<byte[]>>failedFuture(cause)
+                                : CompletableFuture.completedFuture(resp);
+                    }
+                    long waited = delayMs;
+                    Executor later = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> attempt + 1, later)
+                            .thenCompose(next -> sendAttempt(cls, op, policy, req, idempotent, next, waited, deadlineNanos));
+                })
+                .thenCompose(f -> f);
+    }
+
+    private static String outcome(int code) {
+        if (code >= 500) return "server_error";
+        if (code == 429) return "throttled";
+        if (code >= 400) return "client_error";
+        return "success";
+    }
+
+    // One latency histogram per operation and outcome, created on first use
+    private Timer timer(String op, String outcome) {
+        return timers.computeIfAbsent(op + '|' + outcome, k -> Timer.builder("alpaca.http.latency")
+                .description("Alpaca request latency per operation (one sample per HTTP attempt)")
+                .tag("operation", op)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry));
+    }
+
+    // Wait the server asked for: Retry-After (seconds or HTTP date), else X-RateLimit-Reset (epoch seconds)
+    private static long serverDelayMs(HttpResponse<byte[]> resp) {
+        if (resp == null || resp.statusCode() != 429 && resp.statusCode() != 503) return 0;
+        try {
+            var retryAfter = resp.headers().firstValue("Retry-After");
+            if (retryAfter.isPresent()) {
+                String v = retryAfter.get().trim();
+                if (v.chars().allMatch(Character::isDigit)) return TimeUnit.SECONDS.toMillis(Long.parseLong(v));
+                Instant at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                return Math.max(0, Duration.between(Instant.now(), at).toMillis());
             }
+            var reset = resp.headers().firstValue("X-RateLimit-Reset");
+            if (reset.isPresent()) {
+                long epochSec = Long.parseLong(reset.get().trim());
+                return Math.max(0, epochSec * 1000 - System.currentTimeMillis());
+            }
+        } catch (RuntimeException ignored) {
+            // Unparseable header: fall back to the policy's own delay
+        }
+        return 0;
+    }
+
+    // Blocking bridge for the synchronous API: rethrows the original failure
+    private static <T> T await(CompletableFuture<T> f) throws IOException, InterruptedException {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable c = unwrap(e);
+            if (c instanceof IOException io) throw io;
+            if (c instanceof RuntimeException re) throw re;
+            if (c instanceof Error err) throw err;
+            throw new IOException(c);
         }
     }
 
-    private static void ensure2xx(HttpResponse<String> r) {
+    // Strips the CompletionException / ExecutionException / UncheckedIOException wrappers
+    public static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException || t instanceof UncheckedIOException)
+                && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static void ensure2xx(HttpResponse<byte[]> r) {
         int s = r.statusCode();
-        if (s < 200 || s >= 300) throw new IllegalStateException("Alpaca HTTP " + s + " → " + r.body());
+        if (s < 200 || s >= 300) throw new IllegalStateException("Alpaca HTTP " + s + " → " + text(r));
+    }
+
+    // Body as text, only for error messages and status checks
+    private static String text(HttpResponse<byte[]> r) {
+        return r.body() == null ? "" : new String(r.body(), StandardCharsets.UTF_8);
     }
 
     private static String encode(String s) {
@@ -0,0 +1,77 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Keeps the Alpaca connections warm so the first order after a quiet period does not pay a TLS handshake:
+// a cheap request to each host that has been idle for the keep-alive interval, plus an on-demand
+// pre-warm of the trading host when a watched price gets close to its trigger.
+@Service
+public class AlpacaConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(AlpacaConnectionWarmer.class);
+
+    // A pre-warm only pings a trading host idle for longer than this
+    private static final long PREWARM_IDLE_MILLIS = 5_000;
+
+    private final AlpacaClient alpaca;
+    private final long keepAliveMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean prewarming = new AtomicBoolean();
+
+    @Autowired
+    public AlpacaConnectionWarmer(AlpacaClient alpaca, AlpacaProperties props) {
+        this(alpaca, props.getKeepAliveIntervalMs());
+    }
+
+    // keepAliveMillis <= 0 disables the periodic pings (pre-warm still works)
+    public AlpacaConnectionWarmer(AlpacaClient alpaca, long keepAliveMillis) {
+        this.alpaca = alpaca;
+        this.keepAliveMillis = keepAliveMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AlpacaKeepAlive");
+            t.setDaemon(true);
+            return t;
+        });
+        if (keepAliveMillis > 0) {
+            // Checked twice per interval so a host is never idle much longer than the interval
+            long every = Math.max(1_000, keepAliveMillis / 2);
+            scheduler.scheduleWithFixedDelay(this::keepAlive, every, every, TimeUnit.MILLISECONDS);
+            log.info("🔌 Alpaca keep-alive every {} ms of idleness", keepAliveMillis);
+        }
+    }
+
+    private void keepAlive() {
+        for (AlpacaClient.Host host : AlpacaClient.Host.values()) {
+            if (alpaca.idleMillis(host) >= keepAliveMillis) ping(host, null);
+        }
+    }
+
+    // Called from the price path when a trigger is near: never blocks, at most one pre-warm in flight
+    public void prewarm() {
+        if (alpaca.idleMillis(AlpacaClient.Host.TRADING) < PREWARM_IDLE_MILLIS) return;
+        if (!prewarming.compareAndSet(false, true)) return;
+        ping(AlpacaClient.Host.TRADING, prewarming);
+    }
+
+    private void ping(AlpacaClient.Host host, AtomicBoolean inFlight) {
+        alpaca.pingAsync(host).whenComplete((v, t) -> {
+            if (inFlight != null) inFlight.set(false);
+            if (t != null) log.debug("Keep-alive to {} host failed: {}", host, AlpacaClient.unwrap(t).getMessage());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
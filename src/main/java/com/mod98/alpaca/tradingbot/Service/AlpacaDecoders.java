@@ -0,0 +1,336 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.mod98.alpaca.tradingbot.Service.AlpacaClient.FillActivity;
+import com.mod98.alpaca.tradingbot.Service.AlpacaClient.OrderStatus;
+import com.mod98.alpaca.tradingbot.Service.AlpacaClient.OrderSummary;
+import com.mod98.alpaca.tradingbot.Service.AlpacaClient.Quote;
+import com.mod98.alpaca.tradingbot.Service.AlpacaClient.Snapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+// Streaming decoders for Alpaca response bodies: one pass of a JsonParser over the raw UTF-8 bytes,
+// pulling only the fields callers use and skipping everything else (no String body, no JsonNode tree).
+// Prices come out as FixedPrice longs, -1 when absent.
+final class AlpacaDecoders {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private AlpacaDecoders() {}
+
+    // /stocks/{symbol}/trades/latest: {"symbol":..,"trade":{"p":..}}
+    static long latestTradePrice(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return -1;
+            long price = -1;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if ("trade".equals(field) && p.currentToken() == JsonToken.START_OBJECT) price = tradePrice(p);
+                else p.skipChildren();
+            }
+            return price;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /stocks/{symbol}/quotes/latest: {"symbol":..,"quote":{"bp":..,"ap":..}}; null when incomplete
+    static Quote latestQuote(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return null;
+            Quote quote = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if ("quote".equals(field) && p.currentToken() == JsonToken.START_OBJECT) quote = quote(p);
+                else p.skipChildren();
+            }
+            return quote;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /stocks/trades/latest?symbols=: {"trades":{"AAPL":{"p":..},..}} -> sink per symbol
+    static void latestTradePrices(byte[] body, ObjLongConsumer<String> sink) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() != JsonToken.START_OBJECT || !"trades".equals(field)) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String symbol = p.currentName();
+                    if (p.nextToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    long price = tradePrice(p);
+                    if (price >= 0) sink.accept(symbol, price);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /stocks/quotes/latest?symbols=: {"quotes":{"AAPL":{"bp":..,"ap":..},..}}
+    static void latestQuotes(byte[] body, Map<String, Quote> out) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                if (p.nextToken() != JsonToken.START_OBJECT || !"quotes".equals(field)) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String symbol = p.currentName();
+                    if (p.nextToken() != JsonToken.START_OBJECT) {
+                        p.skipChildren();
+                        continue;
+                    }
+                    Quote q = quote(p);
+                    if (q != null) out.put(symbol, q);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /stocks/snapshots?symbols=: {"AAPL":{"latestTrade":{"p"},"latestQuote":{"bp","ap"},"dailyBar":{"v"}},..}
+    static void snapshots(byte[] body, Map<String, Snapshot> out) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String symbol = p.currentName();
+                if (p.nextToken() != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                out.put(symbol, snapshot(p));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /stocks/{symbol}/snapshot: {"latestTrade":{"p"},"latestQuote":{"bp","ap"},"dailyBar":{"v"}}, null when empty
+    static Snapshot snapshot(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            return p.nextToken() == JsonToken.START_OBJECT ? snapshot(p) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /v2/orders/{id}: status, filled_qty (a decimal string), filled_avg_price (string or null)
+    static OrderStatus orderStatus(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) return new OrderStatus("", 0, null);
+            OrderSummary o = order(p, null);
+            return new OrderStatus(o.status(), o.filledQty(), o.filledAvgPrice());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /v2/orders/{id} as a summary
+    static OrderSummary orderSummary(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            return p.nextToken() == JsonToken.START_OBJECT ? order(p, null) : null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /v2/account/activities/FILL: [{"id":..,"transaction_time":..,"symbol":..,"side":..,"order_id":..,
+    // "qty":"10","price":"187.25","leaves_qty":"0",..}, ..]
+    static List<FillActivity> fillActivities(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            List<FillActivity> out = new ArrayList<>();
+            if (p.nextToken() != JsonToken.START_ARRAY) return out;
+            while (p.nextToken() == JsonToken.START_OBJECT) out.add(fillActivity(p));
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // /v2/orders list, flattened: each order followed by its nested legs (bracket/OCO exits)
+    static List<OrderSummary> orders(byte[] body) {
+        try (JsonParser p = JSON.createParser(body)) {
+            List<OrderSummary> out = new ArrayList<>();
+            if (p.nextToken() != JsonToken.START_ARRAY) return out;
+            List<OrderSummary> legs = new ArrayList<>();
+            while (p.nextToken() == JsonToken.START_OBJECT) {
+                out.add(order(p, legs));
+                out.addAll(legs);
+                legs.clear();
+            }
+            return out;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ---- Object readers: called on START_OBJECT, return on its END_OBJECT ----
+    private static long tradePrice(JsonParser p) throws IOException {
+        long price = -1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("p".equals(field) && t.isNumeric()) price = FixedPrice.of(p.getDoubleValue());
+            else p.skipChildren();
+        }
+        return price;
+    }
+
+    private static Quote quote(JsonParser p) throws IOException {
+        long bid = -1, ask = -1;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if ("bp".equals(field) && t.isNumeric()) bid = FixedPrice.of(p.getDoubleValue());
+            else if ("ap".equals(field) && t.isNumeric()) ask = FixedPrice.of(p.getDoubleValue());
+            else p.skipChildren();
+        }
+        return bid >= 0 && ask >= 0 ? new Quote(bid, ask) : null;
+    }
+
+    // Positioned on the snapshot's START_OBJECT; leaves the parser on its END_OBJECT
+    private static Snapshot snapshot(JsonParser p) throws IOException {
+        long last = 0, bid = 0, ask = 0, volume = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (t != JsonToken.START_OBJECT) {
+                p.skipChildren();
+            } else if ("latestTrade".equals(field)) {
+                last = Math.max(0, tradePrice(p));
+            } else if ("latestQuote".equals(field)) {
+                Quote q = quote(p);
+                if (q != null) {
+                    bid = q.bid;
+                    ask = q.ask;
+                }
+            } else if ("dailyBar".equals(field)) {
+                volume = longField(p, "v");
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new Snapshot(last, bid, ask, volume);
+    }
+
+    private static long longField(JsonParser p, String name) throws IOException {
+        long value = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (name.equals(field) && t.isNumeric()) value = p.getLongValue();
+            else p.skipChildren();
+        }
+        return value;
+    }
+
+    // legs: receives the nested leg orders, or null to skip them
+    private static OrderSummary order(JsonParser p, List<OrderSummary> legs) throws IOException {
+        String id = null, clientOrderId = null, symbol = null, side = "", type = "", status = "";
+        int filledQty = 0;
+        BigDecimal avg = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_ARRAY && legs != null && "legs".equals(field)) {
+                while (p.nextToken() == JsonToken.START_OBJECT) legs.add(order(p, null));
+                continue;
+            }
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id" -> id = text(p, t);
+                case "client_order_id" -> clientOrderId = text(p, t);
+                case "symbol" -> symbol = text(p, t);
+                case "side" -> side = lower(text(p, t));
+                case "type" -> type = lower(text(p, t));
+                case "status" -> status = orEmpty(text(p, t));
+                case "filled_qty" -> {
+                    BigDecimal q = decimal(p, t);
+                    filledQty = q == null ? 0 : q.intValue();
+                }
+                case "filled_avg_price" -> avg = decimal(p, t);
+                default -> { }
+            }
+        }
+        return new OrderSummary(id, clientOrderId, symbol, side, type, status, filledQty, avg);
+    }
+
+    private static FillActivity fillActivity(JsonParser p) throws IOException {
+        String id = null, symbol = null, side = "", orderId = null;
+        Instant at = null;
+        BigDecimal qty = null, price = null, leaves = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken t = p.nextToken();
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "id" -> id = text(p, t);
+                case "transaction_time" -> {
+                    String ts = text(p, t);
+                    at = ts == null ? null : OffsetDateTime.parse(ts).toInstant();
+                }
+                case "symbol" -> symbol = text(p, t);
+                case "side" -> side = lower(text(p, t));
+                case "order_id" -> orderId = text(p, t);
+                case "qty" -> qty = decimal(p, t);
+                case "price" -> price = decimal(p, t);
+                case "leaves_qty" -> leaves = decimal(p, t);
+                default -> { }
+            }
+        }
+        return new FillActivity(id, at, symbol, side, orderId, qty == null ? 0 : qty.intValue(), price,
+                leaves == null ? 0 : leaves.intValue());
+    }
+
+    // ---- Scalars ----
+    private static String text(JsonParser p, JsonToken t) throws IOException {
+        return t == JsonToken.VALUE_NULL ? null : p.getText();
+    }
+
+    // Alpaca sends quantities and prices as strings ("187.25"), sometimes as numbers
+    private static BigDecimal decimal(JsonParser p, JsonToken t) throws IOException {
+        if (t.isNumeric()) return p.getDecimalValue();
+        if (t != JsonToken.VALUE_STRING) return null;
+        String s = p.getText();
+        if (s.isBlank()) return null;
+        try {
+            return new BigDecimal(s);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String lower(String s) { return s == null ? "" : s.toLowerCase(); }
+
+    private static String orEmpty(String s) { return s == null ? "" : s; }
+}
@@ -0,0 +1,123 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Client-side token bucket shared by every Alpaca call, so 429s are avoided rather than retried.
+// Each class must leave a share of the bucket untouched: when tokens run low, housekeeping stops first,
+// then market data; fill checks wait for the refill; orders always go (the bucket may go negative).
+@Service
+public class AlpacaRateLimiter {
+
+    // Thrown (as a failed future) when a low-priority request is dropped to save budget
+    public static class ShedException extends IllegalStateException {
+        public ShedException(RequestClass cls) {
+            super("Alpaca request budget low, " + cls + " request shed");
+        }
+    }
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private double tokens;          // guarded by this
+    private long refilledAt;        // guarded by this
+
+    private final Map<RequestClass, Counter> granted = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> delayed = new EnumMap<>(RequestClass.class);
+    private final Map<RequestClass, Counter> shed = new EnumMap<>(RequestClass.class);
+
+    @Autowired
+    public AlpacaRateLimiter(AlpacaProperties props, ObjectProvider<MeterRegistry> meters) {
+        this(props.getRateLimitPerMinute(), props.getRateLimitBurst());
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) bindMetrics(registry);
+    }
+
+    public AlpacaRateLimiter(int perMinute, int burst) {
+        if (perMinute < 1 || burst < 1) {
+            throw new IllegalStateException("Alpaca rate limit needs perMinute >= 1 and burst >= 1");
+        }
+        this.capacity = burst;
+        this.tokensPerNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    // Share of the bucket a class may not dip into
+    private static double reserve(RequestClass cls) {
+        return switch (cls) {
+            case ORDER -> 0.0;
+            case FILL -> 0.10;
+            case MARKET_DATA -> 0.30;
+            case HOUSEKEEPING -> 0.50;
+        };
+    }
+
+    // Completes when the request may be sent; fails with ShedException for shed classes
+    public CompletableFuture<Void> acquire(RequestClass cls) {
+        long waitNanos = tryAcquire(cls);
+        if (waitNanos == 0) {
+            count(granted, cls);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (cls == RequestClass.MARKET_DATA || cls == RequestClass.HOUSEKEEPING) {
+            count(shed, cls);
+            return CompletableFuture.failedFuture(new ShedException(cls));
+        }
+        count(delayed, cls);
+        return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS))
+                .thenCompose(v -> acquire(cls));
+    }
+
+    // 0 when a token was taken, otherwise nanos until this class could take one
+    private synchronized long tryAcquire(RequestClass cls) {
+        refill();
+        double floor = reserve(cls) * capacity;
+        if (cls == RequestClass.ORDER || tokens - 1 >= floor) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((floor + 1 - tokens) / tokensPerNano);
+    }
+
+    // A 429 means the server-side budget is gone whatever we counted: start from empty
+    public synchronized void onThrottled() {
+        tokens = Math.min(tokens, 0);
+    }
+
+    public synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    private static void count(Map<RequestClass, Counter> counters, RequestClass cls) {
+        Counter c = counters.get(cls);
+        if (c != null) c.increment();
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("alpaca.ratelimit.tokens", this, AlpacaRateLimiter::available)
+                .description("Requests that can be sent right now").register(registry);
+        for (RequestClass cls : RequestClass.values()) {
+            String tag = cls.name().toLowerCase();
+            granted.put(cls, Counter.builder("alpaca.ratelimit.granted").tag("class", tag).register(registry));
+            delayed.put(cls, Counter.builder("alpaca.ratelimit.delayed").tag("class", tag).register(registry));
+            shed.put(cls, Counter.builder("alpaca.ratelimit.shed").tag("class", tag).register(registry));
+        }
+    }
+}
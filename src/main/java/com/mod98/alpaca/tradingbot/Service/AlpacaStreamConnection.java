@@ -0,0 +1,201 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// One Alpaca WebSocket: connect, reassemble frames, heartbeat, reconnect with backoff.
+// Subclasses authenticate in onConnected() and call markReady() once the server accepts.
+public abstract class AlpacaStreamConnection implements WebSocket.Listener {
+
+    private static final long MIN_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    // Half-open TCP connections are not always reported: ping, and give up on silence
+    private static final long PING_EVERY_MS = 15_000;
+    private static final long SILENCE_LIMIT_MS = 45_000;
+
+    protected final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String name;
+    private final URI uri;
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ScheduledExecutorService reconnector;
+    private final AtomicBoolean reconnectPending = new AtomicBoolean(false);
+
+    private final StringBuilder text = new StringBuilder();
+    private final ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+    private volatile WebSocket socket;
+    private volatile boolean running;
+    private volatile boolean ready;
+    private volatile long lastSeenAt;
+    private long backoffMs = MIN_BACKOFF_MS;
+    private CompletableFuture<?> sendChain = CompletableFuture.completedFuture(null);
+
+    protected AlpacaStreamConnection(String name, URI uri) {
+        this.name = name;
+        this.uri = uri;
+        this.reconnector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AlpacaStream-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        this.reconnector.scheduleAtFixedRate(this::heartbeat, PING_EVERY_MS, PING_EVERY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public void open() {
+        running = true;
+        connect();
+    }
+
+    public void close() {
+        running = false;
+        ready = false;
+        WebSocket ws = socket;
+        if (ws != null) {
+            try { ws.sendClose(WebSocket.NORMAL_CLOSURE, "bye"); } catch (Exception ignored) {}
+        }
+        reconnector.shutdownNow();
+    }
+
+    public boolean isReady() { return ready; }
+
+    // ---- Subclass hooks ----
+    protected abstract void onConnected();
+
+    protected abstract void onMessage(String json) throws Exception;
+
+    protected void markReady() {
+        ready = true;
+        synchronized (this) { backoffMs = MIN_BACKOFF_MS; }
+        log.info("🔌 {} stream ready ({})", name, uri);
+    }
+
+    // Frames must not overlap, so every send waits for the previous one
+    protected synchronized void send(String json) {
+        WebSocket ws = socket;
+        if (ws == null) return;
+        sendChain = sendChain.handle((r, e) -> null).thenCompose(v -> ws.sendText(json, true));
+    }
+
+    private void heartbeat() {
+        WebSocket ws = socket;
+        if (ws == null) return;
+        if (System.currentTimeMillis() - lastSeenAt > SILENCE_LIMIT_MS) {
+            ws.abort();
+            disconnected("no traffic for " + SILENCE_LIMIT_MS + " ms");
+            return;
+        }
+        synchronized (this) {
+            sendChain = sendChain.handle((r, e) -> null).thenCompose(v -> ws.sendPing(ByteBuffer.allocate(0)));
+        }
+    }
+
+    // ---- Connection lifecycle ----
+    private void connect() {
+        if (!running) return;
+        reconnectPending.set(false);
+        http.newWebSocketBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .buildAsync(uri, this)
+                .whenComplete((ws, err) -> {
+                    if (err != null) disconnected("connect failed: " + err.getMessage());
+                });
+    }
+
+    private void disconnected(String why) {
+        ready = false;
+        socket = null;
+        if (!running || !reconnectPending.compareAndSet(false, true)) return;
+        long delay;
+        synchronized (this) {
+            delay = backoffMs;
+            backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+        }
+        log.warn("{} stream down ({}), reconnecting in {} ms", name, why, delay);
+        try {
+            reconnector.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception ignored) {
+            // shutting down
+        }
+    }
+
+    // ---- WebSocket.Listener ----
+    @Override
+    public void onOpen(WebSocket ws) {
+        socket = ws;
+        lastSeenAt = System.currentTimeMillis();
+        synchronized (this) { sendChain = CompletableFuture.completedFuture(null); }
+        ws.request(1);
+        onConnected();
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket ws, CharSequence data, boolean last) {
+        lastSeenAt = System.currentTimeMillis();
+        text.append(data);
+        if (last) {
+            String msg = text.toString();
+            text.setLength(0);
+            dispatch(msg);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket ws, ByteBuffer data, boolean last) {
+        lastSeenAt = System.currentTimeMillis();
+        byte[] chunk = new byte[data.remaining()];
+        data.get(chunk);
+        binary.write(chunk, 0, chunk.length);
+        if (last) {
+            String msg = binary.toString(StandardCharsets.UTF_8);
+            binary.reset();
+            dispatch(msg);
+        }
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onPong(WebSocket ws, ByteBuffer message) {
+        lastSeenAt = System.currentTimeMillis();
+        ws.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket ws, int statusCode, String reason) {
+        disconnected("closed " + statusCode + (reason == null || reason.isBlank() ? "" : " " + reason));
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket ws, Throwable error) {
+        disconnected(error.getMessage());
+    }
+
+    private void dispatch(String msg) {
+        try {
+            onMessage(msg);
+        } catch (Exception e) {
+            log.warn("{} stream: bad message ({}): {}", name, e.getMessage(), msg);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Alpaca market-data stream: trades + quotes for every watched symbol
+@Service
+@ConditionalOnProperty(prefix = "alpaca", name = "stream-enabled", havingValue = "true")
+public class AlpacaStreamPriceSource extends AlpacaStreamConnection implements PriceSource {
+
+    private final String keyId;
+    private final String secretKey;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    // Everything currently wanted; replayed after every (re)connect
+    private final Set<String> symbols = ConcurrentHashMap.newKeySet();
+    private volatile Listener listener;
+
+    public AlpacaStreamPriceSource(AlpacaProperties props) {
+        super("market-data", URI.create(props.getStreamUrl()));
+        this.keyId = props.getApiKeyId();
+        this.secretKey = props.getApiSecretKey();
+    }
+
+    @Override
+    public void start(Listener listener) {
+        this.listener = listener;
+        open();
+    }
+
+    @Override
+    public void subscribe(String symbol) {
+        if (symbols.add(symbol) && isReady()) send(action("subscribe", List.of(symbol)));
+    }
+
+    @Override
+    public void unsubscribe(String symbol) {
+        if (symbols.remove(symbol) && isReady()) send(action("unsubscribe", List.of(symbol)));
+    }
+
+    @Override
+    public boolean isLive() { return isReady(); }
+
+    @Override
+    public void stop() { close(); }
+
+    @Override
+    protected void onConnected() {
+        send(toJson(Map.of("action", "auth", "key", keyId, "secret", secretKey)));
+    }
+
+    @Override
+    protected void onMessage(String json) throws Exception {
+        JsonNode root = mapper.readTree(json);
+        Iterable<JsonNode> msgs = root.isArray() ? root : List.of(root);
+        for (JsonNode m : msgs) {
+            switch (m.path("T").asText("")) {
+                case "t" -> {
+                    Listener l = listener;
+                    if (l != null && m.path("p").isNumber()) l.onTrade(m.path("S").asText(), FixedPrice.of(m.path("p").doubleValue()));
+                }
+                case "q" -> {
+                    Listener l = listener;
+                    if (l != null && m.path("bp").isNumber() && m.path("ap").isNumber()) {
+                        l.onQuote(m.path("S").asText(), FixedPrice.of(m.path("bp").doubleValue()), FixedPrice.of(m.path("ap").doubleValue()));
+                    }
+                }
+                case "success" -> {
+                    if ("authenticated".equals(m.path("msg").asText())) {
+                        markReady();
+                        // Resubscribe everything armed before/while we were down
+                        if (!symbols.isEmpty()) send(action("subscribe", List.copyOf(symbols)));
+                    }
+                }
+                case "error" -> log.warn("Market-data stream error {}: {}", m.path("code").asInt(), m.path("msg").asText());
+                default -> { }
+            }
+        }
+    }
+
+    private String action(String action, Collection<String> syms) {
+        return toJson(Map.of("action", action, "trades", syms, "quotes", syms));
+    }
+
+    private String toJson(Object o) {
+        try {
+            return mapper.writeValueAsString(o);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode stream message", e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+// Circuit breaker of one request class, over the outcomes of its last windowSize calls.
+// CLOSED: everything goes, and the window opens the circuit once too many calls failed (I/O error, 5xx)
+// or were slow. OPEN: calls fail fast for openMs. HALF_OPEN: one probe call goes; its outcome closes
+// or re-opens the circuit.
+public final class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // Thrown (as a failed future) while the circuit of the request class is open
+    public static class OpenException extends IllegalStateException {
+        public OpenException(RequestClass cls) {
+            super("Alpaca " + cls + " circuit open, request not sent");
+        }
+    }
+
+    private final RequestClass cls;
+    private final int minimumCalls;
+    private final double failureRate;
+    private final double slowCallRate;
+    private final long slowCallNanos;
+    private final long openNanos;
+
+    // Ring of the last outcomes; guarded by this
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slows;
+
+    private State state = State.CLOSED;  // guarded by this
+    private long openedAt;               // guarded by this
+    private boolean probing;             // guarded by this
+
+    public CircuitBreaker(RequestClass cls, AlpacaProperties.CircuitBreaker settings) {
+        this(cls, settings.getWindowSize(), settings.getMinimumCalls(), settings.getFailureRatePercent(),
+                settings.getSlowCallMs(), settings.getSlowCallRatePercent(), settings.getOpenMs());
+    }
+
+    public CircuitBreaker(RequestClass cls, int windowSize, int minimumCalls, int failureRatePercent,
+                          long slowCallMs, int slowCallRatePercent, long openMs) {
+        if (windowSize < 1 || minimumCalls < 1 || minimumCalls > windowSize) {
+            throw new IllegalStateException("Circuit breaker needs 1 <= minimumCalls <= windowSize");
+        }
+        this.cls = cls;
+        this.minimumCalls = minimumCalls;
+        this.failureRate = failureRatePercent / 100.0;
+        this.slowCallRate = slowCallRatePercent / 100.0;
+        this.slowCallNanos = TimeUnit.MILLISECONDS.toNanos(slowCallMs);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.failed = new boolean[windowSize];
+        this.slow = new boolean[windowSize];
+    }
+
+    // True when a call may go; every granted call must be followed by onResult or release
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) return false;
+                state = State.HALF_OPEN;
+                probing = true;
+                log.info("🔌 Alpaca {} circuit half-open, probing", cls);
+                return true;
+            default:
+                if (probing) return false;
+                probing = true;
+                return true;
+        }
+    }
+
+    // The call was granted but never reached Alpaca (e.g. shed by the rate limiter): no verdict
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) probing = false;
+    }
+
+    public synchronized void onResult(boolean failure, long latencyNanos) {
+        boolean slowCall = latencyNanos >= slowCallNanos;
+        if (state == State.HALF_OPEN) {
+            probing = false;
+            if (failure || slowCall) open("probe " + (failure ? "failed" : "slow"));
+            else close();
+            return;
+        }
+        if (state == State.OPEN) return; // sent before the circuit opened
+
+        if (calls == failed.length) {
+            if (failed[next]) failures--;
+            if (slow[next]) slows--;
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        if (failure) failures++;
+        if (slowCall) slows++;
+        next = (next + 1) % failed.length;
+
+        if (calls < minimumCalls) return;
+        if (failures >= failureRate * calls) {
+            open(failures + "/" + calls + " calls failed");
+        } else if (slows >= slowCallRate * calls) {
+            open(slows + "/" + calls + " calls slower than " + TimeUnit.NANOSECONDS.toMillis(slowCallNanos) + " ms");
+        }
+    }
+
+    // Open and still waiting: callers should pause rather than send (a due probe counts as not open)
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.nanoTime() - openedAt < openNanos;
+    }
+
+    public synchronized State state() { return state; }
+
+    private void open(String why) {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        log.warn("⛔ Alpaca {} circuit open for {} ms: {}", cls, TimeUnit.NANOSECONDS.toMillis(openNanos), why);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        calls = failures = slows = next = 0;
+        log.info("✅ Alpaca {} circuit closed", cls);
+    }
+}
@@ -0,0 +1,44 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The stages every triggered execution goes through (pre-trade -> submit -> await fill -> protect),
+// each bounded on its own (alpaca.stages.<stage>.*, defaults in ExecutionStage.of). Stage timeouts shorter
+// than the order timeout allows are refused at startup.
+@Service
+public class ExecutionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionPipeline.class);
+
+    private final Map<TradeStage, ExecutionStage> stages = new EnumMap<>(TradeStage.class);
+
+    @Autowired
+    public ExecutionPipeline(AlpacaProperties props, ObjectProvider<MeterRegistry> meters) {
+        this(props);
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) stages.values().forEach(s -> s.bindMetrics(registry));
+    }
+
+    public ExecutionPipeline(AlpacaProperties props) {
+        long orderTimeoutMs = TimeUnit.SECONDS.toMillis(props.getOrderTimeoutSec());
+        Map<TradeStage, AlpacaProperties.Stage> overrides = PropertyKeys.byEnum(TradeStage.class, props.getStages(), "alpaca.stages");
+        for (TradeStage stage : TradeStage.values()) {
+            stages.put(stage, ExecutionStage.of(stage, overrides.get(stage), orderTimeoutMs));
+        }
+        log.info("⚙️ Execution pipeline stages: {}", stages.keySet());
+    }
+
+    public ExecutionStage stage(TradeStage stage) {
+        return stages.get(stage);
+    }
+}
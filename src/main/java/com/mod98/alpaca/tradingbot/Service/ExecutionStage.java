@@ -0,0 +1,193 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// One stage of the execution pipeline: at most maxConcurrent async steps in flight, up to queueCapacity
+// more waiting, beyond that new work fails fast (FullException) instead of piling up. A step that has not
+// finished within timeoutMs fails with StageTimeoutException and frees its slot.
+// A slot is held until the step's future completes, not by a thread.
+public final class ExecutionStage {
+
+    public static class FullException extends IllegalStateException {
+        public FullException(TradeStage stage, int waiting) {
+            super(stage + " queue full (" + waiting + " waiting)");
+        }
+    }
+
+    public static class StageTimeoutException extends IllegalStateException {
+        private final TradeStage stage;
+
+        public StageTimeoutException(TradeStage stage, long timeoutMs) {
+            super(stage + " timed out after " + timeoutMs + " ms");
+            this.stage = stage;
+        }
+
+        public TradeStage stage() { return stage; }
+    }
+
+    private record Pending<T>(Supplier<CompletableFuture<T>> work, CompletableFuture<T> result, long queuedAt) {}
+
+    private final TradeStage stage;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final long timeoutMs;
+
+    private final Queue<Pending<?>> queue = new ArrayDeque<>(); // guarded by this
+    private int inFlight;                                       // guarded by this
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Timer waitTimer;
+    private Timer okTimer;
+    private Timer failedTimer;
+    private Counter rejectedCounter;
+
+    // Slack on top of the order timeout for SUBMIT and AWAIT_FILL defaults
+    private static final long SETTLE_MS = 5_000;
+
+    // Defaults per stage: awaiting fills is cheap and outlasts the order timeout, the rest is one or two calls.
+    // SUBMIT retries until the order timeout and AWAIT_FILL waits that long before cancelling, so both stages
+    // are derived from it and may never be set shorter than minTimeoutMs (the step would outlive its stage).
+    public static ExecutionStage of(TradeStage stage, AlpacaProperties.Stage override, long orderTimeoutMs) {
+        int maxConcurrent;
+        int queueCapacity;
+        long timeoutMs;
+        switch (stage) {
+            case PRE_TRADE -> { maxConcurrent = 20; queueCapacity = 200; timeoutMs = 2_000; }
+            case SUBMIT -> { maxConcurrent = 20; queueCapacity = 200; timeoutMs = minTimeoutMs(stage, orderTimeoutMs) + SETTLE_MS; }
+            case AWAIT_FILL -> { maxConcurrent = 500; queueCapacity = 500;
+                timeoutMs = Math.max(60_000, minTimeoutMs(stage, orderTimeoutMs) + SETTLE_MS); }
+            default -> { maxConcurrent = 20; queueCapacity = 200; timeoutMs = 10_000; } // PROTECT
+        }
+        if (override != null) {
+            if (override.getMaxConcurrent() != null) maxConcurrent = override.getMaxConcurrent();
+            if (override.getQueueCapacity() != null) queueCapacity = override.getQueueCapacity();
+            if (override.getTimeoutMs() != null) timeoutMs = override.getTimeoutMs();
+        }
+        if (timeoutMs < minTimeoutMs(stage, orderTimeoutMs)) {
+            throw new IllegalStateException("alpaca.stages." + stage.name().toLowerCase().replace('_', '-')
+                    + ".timeout-ms=" + timeoutMs + " is shorter than its step can run with alpaca.order-timeout-sec="
+                    + TimeUnit.MILLISECONDS.toSeconds(orderTimeoutMs) + " (needs >= " + minTimeoutMs(stage, orderTimeoutMs) + ")");
+        }
+        return new ExecutionStage(stage, maxConcurrent, queueCapacity, timeoutMs);
+    }
+
+    // SUBMIT: retries stop at the order timeout, the last attempt may still be in flight.
+    // AWAIT_FILL: the fill wait ends at the order timeout, then a cancel and a status read go out.
+    static long minTimeoutMs(TradeStage stage, long orderTimeoutMs) {
+        long request = AlpacaClient.REQUEST_TIMEOUT.toMillis();
+        return switch (stage) {
+            case SUBMIT -> orderTimeoutMs + request;
+            case AWAIT_FILL -> orderTimeoutMs + 2 * request;
+            default -> 1;
+        };
+    }
+
+    public ExecutionStage(TradeStage stage, int maxConcurrent, int queueCapacity, long timeoutMs) {
+        if (maxConcurrent < 1 || queueCapacity < 0 || timeoutMs < 1) {
+            throw new IllegalStateException("Stage " + stage + " needs maxConcurrent >= 1, queueCapacity >= 0, timeoutMs >= 1");
+        }
+        this.stage = stage;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+    }
+
+    public TradeStage stage() { return stage; }
+
+    // Starts the step now if a slot is free, queues it otherwise; never blocks the caller
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> work) {
+        Pending<T> p = new Pending<>(work, new CompletableFuture<>(), System.nanoTime());
+        synchronized (this) {
+            if (inFlight < maxConcurrent) {
+                inFlight++;
+            } else if (queue.size() < queueCapacity) {
+                queue.add(p);
+                return p.result();
+            } else {
+                rejected.incrementAndGet();
+                if (rejectedCounter != null) rejectedCounter.increment();
+                return CompletableFuture.failedFuture(new FullException(stage, queue.size()));
+            }
+        }
+        start(p);
+        return p.result();
+    }
+
+    public synchronized int inFlight() { return inFlight; }
+
+    public synchronized int queued() { return queue.size(); }
+
+    public long rejected() { return rejected.get(); }
+
+    private <T> void start(Pending<T> p) {
+        long started = System.nanoTime();
+        if (waitTimer != null) waitTimer.record(started - p.queuedAt(), TimeUnit.NANOSECONDS);
+        CompletableFuture<T> step;
+        try {
+            step = p.work().get();
+        } catch (RuntimeException e) {
+            step = CompletableFuture.failedFuture(e);
+        }
+        // Copy before the timeout so the step's own future is left alone
+        step.thenApply(v -> v).orTimeout(timeoutMs, TimeUnit.MILLISECONDS).whenComplete((v, t) -> {
+            Timer timer = t == null ? okTimer : failedTimer;
+            if (timer != null) timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            // Free the slot before handing the result on, so the next stage never waits on this one
+            next();
+            if (t == null) {
+                p.result().complete(v);
+            } else {
+                Throwable cause = AlpacaClient.unwrap(t);
+                p.result().completeExceptionally(cause instanceof TimeoutException
+                        ? new StageTimeoutException(stage, timeoutMs) : cause);
+            }
+        });
+    }
+
+    private void next() {
+        Pending<?> n;
+        synchronized (this) {
+            n = queue.poll();
+            if (n == null) {
+                inFlight--;
+                return;
+            }
+        }
+        start(n);
+    }
+
+    void bindMetrics(MeterRegistry registry) {
+        String tag = stage.name().toLowerCase();
+        waitTimer = Timer.builder("trade.stage.wait").tag("stage", tag)
+                .description("Time an execution step waited for a free slot of its stage").register(registry);
+        okTimer = stageTimer(registry, tag, "ok");
+        failedTimer = stageTimer(registry, tag, "failed");
+        Gauge.builder("trade.stage.in_flight", this, ExecutionStage::inFlight).tag("stage", tag)
+                .description("Execution steps running in the stage").register(registry);
+        Gauge.builder("trade.stage.queued", this, ExecutionStage::queued).tag("stage", tag)
+                .description("Execution steps waiting for a slot of the stage").register(registry);
+        rejectedCounter = Counter.builder("trade.stage.rejected").tag("stage", tag)
+                .description("Execution steps dropped because the stage queue was full").register(registry);
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String tag, String outcome) {
+        return Timer.builder("trade.stage.latency")
+                .description("Time spent in one execution stage")
+                .tag("stage", tag)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+}
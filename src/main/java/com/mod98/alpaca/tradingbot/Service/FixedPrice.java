@@ -0,0 +1,34 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Prices as longs in millionths of a dollar (1.5 USD -> 1_500_000).
+// Used for trigger storage, comparisons and keys; BigDecimal only when an order is built.
+public final class FixedPrice {
+
+    public static final int DECIMALS = 6;
+    public static final long SCALE = 1_000_000L;
+
+    private FixedPrice() {}
+
+    public static long of(BigDecimal px) {
+        return px.setScale(DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long of(double px) {
+        return Math.round(px * SCALE);
+    }
+
+    public static BigDecimal toBigDecimal(long px) {
+        return BigDecimal.valueOf(px, DECIMALS);
+    }
+
+    public static double toDouble(long px) {
+        return px / (double) SCALE;
+    }
+
+    public static String toString(long px) {
+        return toBigDecimal(px).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Deadline scheduler for watch expiry, order timeouts and fill checks.
+// O(1) schedule and cancel (a cancelled task leaves its slot immediately), one tick thread.
+@Service
+public class HashedTimingWheel {
+
+    private static final Logger log = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    private static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 512; // power of two: 51.2 s per round
+
+    public interface Timeout {
+        // True if this call stopped the task from running
+        boolean cancel();
+        boolean isPending();
+    }
+
+    private final long tickNanos = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+    private final int mask = WHEEL_SIZE - 1;
+    private final Node[] wheel = new Node[WHEEL_SIZE]; // bucket heads, guarded by this
+    private final long startNanos = System.nanoTime();
+    private long tick;                                  // next tick to process, guarded by this
+    private int pending;                                // guarded by this
+
+    private final Thread worker;
+    // Expired tasks may block (HTTP), so they never run on the tick thread
+    private final ExecutorService runner;
+    private final AtomicInteger runnerSeq = new AtomicInteger();
+    private volatile boolean running = true;
+
+    public HashedTimingWheel() {
+        this.runner = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "TimingWheel-task-" + runnerSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.worker = new Thread(this::run, "TimingWheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public Timeout schedule(Runnable task, Duration delay) {
+        Objects.requireNonNull(task, "task");
+        long deadline = System.nanoTime() - startNanos + Math.max(0, delay.toNanos());
+        long calculated = deadline / tickNanos;
+        Node node = new Node(task);
+        synchronized (this) {
+            long target = Math.max(calculated, tick);
+            node.rounds = (target - tick) / WHEEL_SIZE;
+            link(node, (int) (target & mask));
+        }
+        return node;
+    }
+
+    public synchronized int pending() { return pending; }
+
+    // ---- Tick thread ----
+    private void run() {
+        while (running) {
+            long wakeAt = startNanos + (currentTick() + 1) * tickNanos;
+            long sleep = wakeAt - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            List<Node> expired = advance();
+            for (Node n : expired) {
+                try {
+                    runner.execute(() -> {
+                        try {
+                            n.task.run();
+                        } catch (Throwable t) {
+                            log.error("Timing wheel task failed: {}", t.getMessage(), t);
+                        }
+                    });
+                } catch (Exception e) {
+                    return; // shutting down
+                }
+            }
+        }
+    }
+
+    private synchronized long currentTick() { return tick; }
+
+    // Process the current bucket: due nodes are unlinked and returned, the rest lose a round
+    private synchronized List<Node> advance() {
+        int idx = (int) (tick & mask);
+        tick++;
+        List<Node> expired = null;
+        Node n = wheel[idx];
+        while (n != null) {
+            Node next = n.next;
+            if (n.rounds <= 0) {
+                unlink(n);
+                n.state = Node.EXPIRED;
+                if (expired == null) expired = new ArrayList<>();
+                expired.add(n);
+            } else {
+                n.rounds--;
+            }
+            n = next;
+        }
+        return expired == null ? List.of() : expired;
+    }
+
+    // ---- Bucket lists (intrusive, doubly linked) ----
+    private void link(Node n, int idx) {
+        n.bucket = idx;
+        n.prev = null;
+        n.next = wheel[idx];
+        if (n.next != null) n.next.prev = n;
+        wheel[idx] = n;
+        pending++;
+    }
+
+    private void unlink(Node n) {
+        if (n.prev != null) n.prev.next = n.next;
+        else wheel[n.bucket] = n.next;
+        if (n.next != null) n.next.prev = n.prev;
+        n.prev = n.next = null;
+        pending--;
+    }
+
+    private synchronized boolean cancel(Node n) {
+        if (n.state != Node.PENDING) return false;
+        n.state = Node.CANCELLED;
+        unlink(n);
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        worker.interrupt();
+        runner.shutdownNow();
+    }
+
+    private final class Node implements Timeout {
+        static final int PENDING = 0, EXPIRED = 1, CANCELLED = 2;
+
+        final Runnable task;
+        long rounds;
+        int bucket;
+        Node prev, next;
+        volatile int state = PENDING;
+
+        Node(Runnable task) { this.task = task; }
+
+        @Override public boolean cancel() { return HashedTimingWheel.this.cancel(this); }
+        @Override public boolean isPending() { return state == PENDING; }
+    }
+}
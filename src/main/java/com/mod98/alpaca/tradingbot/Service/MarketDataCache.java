@@ -0,0 +1,165 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.ObjLongConsumer;
+
+// Short-TTL cache with single-flight in front of the AlpacaClient market-data calls.
+// Callers asking for the same symbol while a fetch is in flight share that fetch (coalesced);
+// a result younger than the TTL is served without a request (hit). Bounded, least recently used out.
+@Service
+public class MarketDataCache {
+
+    private final AlpacaClient alpaca;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<String, Slot<AlpacaClient.Quote>> quotes;
+    private final Map<String, Slot<Long>> trades;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private Counter hitCounter;
+    private Counter coalescedCounter;
+    private Counter missCounter;
+
+    // One symbol's latest fetch: fetchedAt is 0 while it is still in flight
+    private static final class Slot<T> {
+        final CompletableFuture<T> value;
+        volatile long fetchedAt;
+        Slot(CompletableFuture<T> value) { this.value = value; }
+    }
+
+    @Autowired
+    public MarketDataCache(AlpacaClient alpaca, AlpacaProperties props, ObjectProvider<MeterRegistry> meters) {
+        this(alpaca, props.getMarketDataCacheTtlMs(), props.getMarketDataCacheMaxEntries());
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) bindMetrics(registry);
+    }
+
+    public MarketDataCache(AlpacaClient alpaca, long ttlMillis, int maxEntries) {
+        this.alpaca = alpaca;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxEntries = maxEntries;
+        this.quotes = lru();
+        this.trades = lru();
+    }
+
+    public CompletableFuture<AlpacaClient.Quote> lastQuote(String symbol) {
+        return get(quotes, symbol, alpaca::getLastQuoteAsync);
+    }
+
+    public CompletableFuture<Long> lastTradePrice(String symbol) {
+        return get(trades, symbol, alpaca::getLastTradePriceAsync);
+    }
+
+    // Batch poll: always fetched (the caller paces it), every price seen is cached for everyone else
+    public CompletableFuture<Void> latestTradePrices(Collection<String> symbols, ObjLongConsumer<String> sink) {
+        return alpaca.getLatestTradePricesAsync(symbols, (symbol, price) -> {
+            offer(trades, symbol, price);
+            sink.accept(symbol, price);
+        });
+    }
+
+    // Quotes pushed from elsewhere (e.g. the stream) count as fresh fetches
+    public void offerQuote(String symbol, AlpacaClient.Quote quote) {
+        offer(quotes, symbol, quote);
+    }
+
+    // Alpaca market data is failing (its circuit is open): pollers should skip their ticks
+    public boolean isPaused() {
+        return alpaca.isCircuitOpen(RequestClass.MARKET_DATA);
+    }
+
+    public double hitRate() { return rate(hits.get()); }
+
+    public double coalesceRate() { return rate(coalesced.get()); }
+
+    private double rate(long n) {
+        long total = hits.get() + coalesced.get() + misses.get();
+        return total == 0 ? 0 : n / (double) total;
+    }
+
+    private <T> CompletableFuture<T> get(Map<String, Slot<T>> cache, String symbol,
+                                         Function<String, CompletableFuture<T>> fetch) {
+        Slot<T> slot;
+        synchronized (cache) {
+            slot = cache.get(symbol);
+            if (slot != null) {
+                long at = slot.fetchedAt;
+                if (at == 0) {
+                    record(coalesced, coalescedCounter);
+                    return slot.value;
+                }
+                if (System.nanoTime() - at < ttlNanos) {
+                    record(hits, hitCounter);
+                    return slot.value;
+                }
+            }
+            slot = new Slot<>(new CompletableFuture<>());
+            cache.put(symbol, slot);
+        }
+        record(misses, missCounter);
+
+        // Fetch outside the lock; a failure is never cached
+        Slot<T> mine = slot;
+        fetch.apply(symbol).whenComplete((value, err) -> {
+            if (err != null) {
+                synchronized (cache) {
+                    cache.remove(symbol, mine);
+                }
+                mine.value.completeExceptionally(err);
+            } else {
+                mine.fetchedAt = System.nanoTime();
+                mine.value.complete(value);
+            }
+        });
+        return mine.value;
+    }
+
+    private <T> void offer(Map<String, Slot<T>> cache, String symbol, T value) {
+        Slot<T> slot = new Slot<>(CompletableFuture.completedFuture(value));
+        slot.fetchedAt = System.nanoTime();
+        synchronized (cache) {
+            Slot<T> current = cache.get(symbol);
+            // An in-flight fetch keeps its waiters; it lands a moment later anyway
+            if (current == null || current.fetchedAt != 0) cache.put(symbol, slot);
+        }
+    }
+
+    private static void record(AtomicLong n, Counter counter) {
+        n.incrementAndGet();
+        if (counter != null) counter.increment();
+    }
+
+    private <T> Map<String, Slot<T>> lru() {
+        return new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Slot<T>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        hitCounter = Counter.builder("marketdata.cache.requests").tag("result", "hit").register(registry);
+        coalescedCounter = Counter.builder("marketdata.cache.requests").tag("result", "coalesced").register(registry);
+        missCounter = Counter.builder("marketdata.cache.requests").tag("result", "miss").register(registry);
+        Gauge.builder("marketdata.cache.hit.rate", this, MarketDataCache::hitRate).register(registry);
+        Gauge.builder("marketdata.cache.coalesce.rate", this, MarketDataCache::coalesceRate).register(registry);
+    }
+}
@@ -0,0 +1,110 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Recent ticks and 1-minute OHLC bars of one symbol, in preallocated rings (prices are FixedPrice longs).
+// onTick is O(1) and allocates nothing; only the query methods build objects.
+// Not thread-safe; callers synchronize.
+public final class MinuteBars {
+
+    public static final long BAR_MILLIS = 60_000;
+
+    private static final int TICK_CAPACITY = 1024;  // power of two
+    private static final int BAR_CAPACITY = 512;    // power of two: the last ~8.5 hours of minutes
+
+    public record Tick(long price, long atMillis) {}
+
+    public record Bar(long startMillis, long open, long high, long low, long close, int ticks) {}
+
+    // ---- Tick ring ----
+    private final long[] tickPx = new long[TICK_CAPACITY];
+    private final long[] tickAt = new long[TICK_CAPACITY];
+    private long tickCount;
+
+    // ---- Completed bars ring ----
+    private final long[] barStart = new long[BAR_CAPACITY];
+    private final long[] barOpen = new long[BAR_CAPACITY];
+    private final long[] barHigh = new long[BAR_CAPACITY];
+    private final long[] barLow = new long[BAR_CAPACITY];
+    private final long[] barClose = new long[BAR_CAPACITY];
+    private final int[] barTicks = new int[BAR_CAPACITY];
+    private long barCount;
+
+    // ---- Bar being built ----
+    private long curStart = -1;
+    private long curOpen, curHigh, curLow, curClose;
+    private int curTicks;
+
+    // Records the tick; returns true when it opened a new minute, i.e. the previous bar is now closed
+    public boolean onTick(long price, long atMillis) {
+        int t = (int) (tickCount++ & (TICK_CAPACITY - 1));
+        tickPx[t] = price;
+        tickAt[t] = atMillis;
+
+        long start = atMillis - Math.floorMod(atMillis, BAR_MILLIS);
+        if (start == curStart) {
+            if (price > curHigh) curHigh = price;
+            if (price < curLow) curLow = price;
+            curClose = price;
+            curTicks++;
+            return false;
+        }
+        if (start < curStart) return false; // late tick from a closed minute: kept as a tick only
+
+        boolean closed = curStart >= 0;
+        if (closed) closeBar();
+        curStart = start;
+        curOpen = curHigh = curLow = curClose = price;
+        curTicks = 1;
+        return closed;
+    }
+
+    private void closeBar() {
+        int b = (int) (barCount++ & (BAR_CAPACITY - 1));
+        barStart[b] = curStart;
+        barOpen[b] = curOpen;
+        barHigh[b] = curHigh;
+        barLow[b] = curLow;
+        barClose[b] = curClose;
+        barTicks[b] = curTicks;
+    }
+
+    // Close of the last completed minute, or -1 when none has completed yet
+    public long lastClose() {
+        return barCount == 0 ? -1 : barClose[(int) ((barCount - 1) & (BAR_CAPACITY - 1))];
+    }
+
+    public Bar lastBar() {
+        return barCount == 0 ? null : bar(barCount - 1);
+    }
+
+    // Up to n completed bars, oldest first
+    public List<Bar> lastBars(int n) {
+        long from = Math.max(barCount - Math.min(n, BAR_CAPACITY), 0);
+        List<Bar> out = new ArrayList<>((int) (barCount - from));
+        for (long i = from; i < barCount; i++) out.add(bar(i));
+        return out;
+    }
+
+    // The minute still being built, or null
+    public Bar currentBar() {
+        return curStart < 0 ? null : new Bar(curStart, curOpen, curHigh, curLow, curClose, curTicks);
+    }
+
+    // Up to n most recent ticks, oldest first
+    public List<Tick> lastTicks(int n) {
+        long from = Math.max(tickCount - Math.min(n, TICK_CAPACITY), 0);
+        List<Tick> out = new ArrayList<>((int) (tickCount - from));
+        for (long i = from; i < tickCount; i++) {
+            int t = (int) (i & (TICK_CAPACITY - 1));
+            out.add(new Tick(tickPx[t], tickAt[t]));
+        }
+        return out;
+    }
+
+    private Bar bar(long i) {
+        int b = (int) (i & (BAR_CAPACITY - 1));
+        return new Bar(barStart[b], barOpen[b], barHigh[b], barLow[b], barClose[b], barTicks[b]);
+    }
+}
@@ -0,0 +1,99 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Model.TradeRecord;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+// Open trade_records rows (closed_at IS NULL) by symbol, oldest first, and by the ids of their orders
+// (entry and exit legs). TradeRecordService keeps it in step with the table after each commit; lookups
+// never hit the DB.
+public class OpenTradeIndex {
+
+    // orderIds: entry and exit orders; exitOrderIds: the exit ones only
+    private record Open(long id, String symbol, Set<String> orderIds, Set<String> exitOrderIds) {}
+
+    private final Map<Long, Open> byId = new HashMap<>();                 // guarded by this
+    private final Map<String, Deque<Long>> bySymbol = new HashMap<>();    // guarded by this
+    private final Map<String, Long> byOrderId = new HashMap<>();          // guarded by this
+
+    // Adds an open row, or refreshes its order ids
+    public synchronized void put(TradeRecord r) {
+        if (r.getId() == null) return;
+        if (r.getClosedAt() != null) {
+            remove(r.getId());
+            return;
+        }
+        Open o = byId.get(r.getId());
+        if (o == null) {
+            o = new Open(r.getId(), r.getSymbol(), new HashSet<>(), new HashSet<>());
+            byId.put(o.id(), o);
+            bySymbol.computeIfAbsent(o.symbol(), s -> new ArrayDeque<>()).add(o.id());
+        }
+        addOrderId(o, r.getBuyOrderId());
+        if (r.getExitOrderIds() != null) {
+            for (String id : r.getExitOrderIds().split(",")) {
+                if (addOrderId(o, id)) o.exitOrderIds().add(id.trim());
+            }
+        }
+    }
+
+    public synchronized void remove(long id) {
+        Open o = byId.remove(id);
+        if (o == null) return;
+        Deque<Long> ids = bySymbol.get(o.symbol());
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) bySymbol.remove(o.symbol());
+        }
+        for (String orderId : o.orderIds()) byOrderId.remove(orderId, id);
+    }
+
+    public synchronized void replaceAll(Collection<TradeRecord> open) {
+        byId.clear();
+        bySymbol.clear();
+        byOrderId.clear();
+        for (TradeRecord r : open) put(r);
+    }
+
+    // Row id of the open trade an order belongs to, or null
+    public synchronized Long byOrderId(String orderId) {
+        return orderId == null ? null : byOrderId.get(orderId);
+    }
+
+    // Oldest open trade in the symbol with an entry order but no exit order on file, or null. A trade with
+    // exit orders is only ever closed by one of them (byOrderId).
+    public synchronized Long unprotectedBySymbol(String symbol) {
+        return oldest(symbol, o -> !o.orderIds().isEmpty() && o.exitOrderIds().isEmpty());
+    }
+
+    // Oldest open trade in the symbol not tied to an entry order yet (armed only), or null
+    public synchronized Long armedBySymbol(String symbol) {
+        return oldest(symbol, o -> o.orderIds().isEmpty());
+    }
+
+    public synchronized int size() { return byId.size(); }
+
+    private Long oldest(String symbol, Predicate<Open> match) {
+        Deque<Long> ids = bySymbol.get(symbol);
+        if (ids == null) return null;
+        for (Long id : ids) {
+            if (match.test(byId.get(id))) return id;
+        }
+        return null;
+    }
+
+    private boolean addOrderId(Open o, String orderId) {
+        if (orderId == null || orderId.isBlank()) return false;
+        String id = orderId.trim();
+        o.orderIds().add(id);
+        byOrderId.put(id, o.id());
+        return true;
+    }
+}
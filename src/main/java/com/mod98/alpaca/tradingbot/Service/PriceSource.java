@@ -0,0 +1,22 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+// Push-based market data behind PriceWatcherService (REST polling stays as the fallback)
+public interface PriceSource {
+
+    // Prices are FixedPrice longs
+    interface Listener {
+        void onTrade(String symbol, long price);
+        default void onQuote(String symbol, long bid, long ask) {}
+    }
+
+    void start(Listener listener);
+
+    void subscribe(String symbol);
+
+    void unsubscribe(String symbol);
+
+    // False while connecting/reconnecting: the watcher polls REST in the meantime
+    boolean isLive();
+
+    void stop();
+}
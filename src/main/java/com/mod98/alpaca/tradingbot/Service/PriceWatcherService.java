@@ -1,20 +1,27 @@
 package com.mod98.alpaca.tradingbot.Service;
 
+import com.mod98.alpaca.tradingbot.Parsing.TriggerType;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 @RequiredArgsConstructor
@@ -23,30 +30,82 @@ public class PriceWatcherService {
 
     private static final Logger log = LoggerFactory.getLogger(PriceWatcherService.class);
 
-    private final AlpacaClient alpaca;
+    // Resolution of the poll driver; also the fastest any symbol can be polled
+    private static final long TICK_MILLIS = 100;
+    // Slowest adaptive poll, for symbols far from every trigger
+    private static final long MAX_POLL_MILLIS = 5_000;
+    // Distance (bps) at which the distance rule reaches MAX_POLL_MILLIS
+    private static final double FAR_BPS = 500;
+    // Polls wanted before the expected crossing time, and EWMA weight of the newest move
+    private static final double POLLS_BEFORE_CROSS = 4;
+    private static final double VOL_ALPHA = 0.2;
+    // With a live stream, a symbol is only REST-polled after this long without a pushed trade
+    private static final long STREAM_STALE_NANOS = TimeUnit.SECONDS.toNanos(5);
+    // A streamed quote older than this is not handed to the callback
+    private static final long QUOTE_MAX_AGE_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long POLL_ERROR_LOG_EVERY_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // Within this distance of a trigger the order connection is pre-warmed
+    private static final double PREWARM_BPS = 50;
+
+    private final MarketDataCache marketData;
+    private final PriceSource priceSource;
+    private final HashedTimingWheel deadlines;
+    private final TriggerCallbackExecutor callbacks;
+    private final AlpacaConnectionWarmer warmer;
     private final ScheduledExecutorService scheduler;
 
+    // watch id -> handle (cancellation); one watch per symbol and trigger level is enforced by the book
     private final ConcurrentMap<String, WatchHandle> active = new ConcurrentHashMap<>();
+    // symbol -> sorted triggers armed on it and its next poll time
+    private final ConcurrentMap<String, SymbolBook> books = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastPollErrorLogAt = new AtomicLong();
+    private final AtomicLong suppressedPollErrors = new AtomicLong();
 
     private final Duration defaultPollInterval;
     private final Duration defaultTimeout;
 
     @Autowired
-    public PriceWatcherService(AlpacaClient alpaca) {
-        this(alpaca, Duration.ofSeconds(1), Duration.ofMinutes(10));
+    public PriceWatcherService(MarketDataCache marketData, ObjectProvider<PriceSource> priceSource, HashedTimingWheel deadlines,
+                               TriggerCallbackExecutor callbacks, ObjectProvider<AlpacaConnectionWarmer> warmer) {
+        this(marketData, priceSource.getIfAvailable(), deadlines, callbacks, warmer.getIfAvailable(),
+                Duration.ofSeconds(1), Duration.ofMinutes(10));
+    }
+
+    public PriceWatcherService(MarketDataCache marketData, PriceSource priceSource, HashedTimingWheel deadlines,
+                               TriggerCallbackExecutor callbacks, Duration pollInterval, Duration timeout) {
+        this(marketData, priceSource, deadlines, callbacks, null, pollInterval, timeout);
     }
 
-    public PriceWatcherService(AlpacaClient alpaca, Duration pollInterval, Duration timeout) {
-        this.alpaca = Objects.requireNonNull(alpaca, "alpaca");
+    public PriceWatcherService(MarketDataCache marketData, PriceSource priceSource, HashedTimingWheel deadlines,
+                               TriggerCallbackExecutor callbacks, AlpacaConnectionWarmer warmer,
+                               Duration pollInterval, Duration timeout) {
+        this.warmer = warmer;
+        this.marketData = Objects.requireNonNull(marketData, "marketData");
+        this.priceSource = priceSource;
+        this.deadlines = Objects.requireNonNull(deadlines, "deadlines");
+        this.callbacks = Objects.requireNonNull(callbacks, "callbacks");
         this.defaultPollInterval = pollInterval == null ? Duration.ofSeconds(1) : pollInterval;
         this.defaultTimeout = timeout == null ? Duration.ofMinutes(10) : timeout;
-        this.scheduler = Executors.newScheduledThreadPool(
-                Math.max(2, Runtime.getRuntime().availableProcessors() / 2),
+        // Only the poll driver runs here; callbacks go to their own executor so a burst never delays a tick
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
                 r -> { Thread t = new Thread(r, "PriceWatcher"); t.setDaemon(true); return t; }
         );
+        // A single driver polls every due symbol with one batch request per tick
+        this.scheduler.scheduleWithFixedDelay(this::pollTick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        if (priceSource != null) {
+            priceSource.start(new PriceSource.Listener() {
+                @Override public void onTrade(String symbol, long price) { onPushedTrade(symbol, price); }
+                @Override public void onQuote(String symbol, long bid, long ask) { onPushedQuote(symbol, bid, ask); }
+            });
+            log.info("📡 Streaming price source enabled (REST polling as fallback)");
+        }
     }
 
-    public record TriggerEvent(String symbol, BigDecimal trigger, BigDecimal lastPrice, Instant crossedAt) {}
+    // Prices are FixedPrice longs; quote is the latest streamed bid/ask when fresh, otherwise null
+    public record TriggerEvent(String symbol, long trigger, long lastPrice, Instant crossedAt,
+                               AlpacaClient.Quote quote) {}
 
     public interface Arm {
         void cancel();
@@ -59,99 +118,346 @@ public Arm armTrigger(String symbol,
                           Duration pollEvery,
                           Duration timeout,
                           Consumer<TriggerEvent> onCross) {
+        return armTrigger(symbol, trigger, TriggerType.LAST, pollEvery, timeout, onCross);
+    }
 
-        Objects.requireNonNull(symbol, "symbol");
+    public Arm armTrigger(String symbol,
+                          BigDecimal trigger,
+                          TriggerType type,
+                          Duration pollEvery,
+                          Duration timeout,
+                          Consumer<TriggerEvent> onCross) {
         Objects.requireNonNull(trigger, "trigger");
-        Objects.requireNonNull(onCross, "onCross");
+        return armTrigger(symbol, FixedPrice.of(trigger), type, pollEvery, timeout, onCross);
+    }
 
-        final String sym = symbol.trim().toUpperCase();
-        final BigDecimal trg = trigger.setScale(6, RoundingMode.HALF_UP);
-        final String key = sym + "|" + trg.toPlainString();
+    // MINUTE_CLOSE fires on the first completed 1-minute bar closing at or above the trigger
+    public Arm armTrigger(String symbol,
+                          long trigger,
+                          TriggerType type,
+                          Duration pollEvery,
+                          Duration timeout,
+                          Consumer<TriggerEvent> onCross) {
 
-        if (active.containsKey(key)) {
-            log.warn("Watch already active for {}", key);
-            return active.get(key);
-        }
+        Objects.requireNonNull(symbol, "symbol");
+        Objects.requireNonNull(onCross, "onCross");
+        final TriggerType mode = type == null ? TriggerType.LAST : type;
 
+        final String sym = symbol.trim().toUpperCase();
         final Duration poll = Optional.ofNullable(pollEvery).orElse(defaultPollInterval);
         final Duration to = Optional.ofNullable(timeout).orElse(defaultTimeout);
-        final Instant expiresAt = Instant.now().plus(to);
         final String id = UUID.randomUUID().toString();
 
-        // Periodic inspection mission
-        Runnable task = () -> {
-            try {
-                if (Instant.now().isAfter(expiresAt)) {
-                    log.info("⏳ Timeout watching {}@{}", sym, trg);
-                    cancelInternal(key, /*interrupt*/ false);
-                    return;
-                }
+        WatchHandle handle = new WatchHandle(id, sym, trigger, mode, onCross);
+        active.put(id, handle);
 
-                BigDecimal last = alpaca.getLastTradePrice(sym);
-                if (last != null && last.compareTo(trg) >= 0) {
-                    // Drag the handle and remove it from the map first to prevent duplication
-                    WatchHandle handle = active.remove(key);
-                    if (handle == null) return;
-                    // Stop scheduling without interrupting the current thread
-                    try { handle.future.cancel(false); } catch (Exception ignored) {}
-                    TriggerEvent evt = new TriggerEvent(sym, trg, last, Instant.now());
-                    // Execute the callback on a separate thread of the same scheduler.
-                    scheduler.execute(() -> {
-                        try {
-                            handle.callback.accept(evt);
-                        } catch (Throwable t) {
-                            log.error("onCross callback error", t);
-                        }
-                    });
-                }
-            } catch (Throwable t) {
-                log.error("Polling error for {}: {}", sym, t.getMessage(), t);
+        // Auto-cancel after timeout; the wheel slot is freed as soon as the watch fires or is cancelled
+        handle.expiry = deadlines.schedule(() -> {
+            if (active.get(id) == handle) {
+                log.info("⏳ Auto-cancel (timeout) for {}@{}", sym, FixedPrice.toString(trigger));
+                cancelInternal(id);
             }
-        };
+        }, to);
 
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(
-                task, 0L, Math.max(100, poll.toMillis()), TimeUnit.MILLISECONDS
-        );
+        // Join (or open) the book of this symbol
+        WatchHandle[] existing = new WatchHandle[1];
+        books.compute(sym, (s, book) -> {
+            if (book == null) {
+                book = new SymbolBook(s);
+                if (priceSource != null) priceSource.subscribe(s);
+            }
+            existing[0] = book.add(handle, Math.max(TICK_MILLIS, poll.toMillis()));
+            return book;
+        });
+        if (existing[0] != null) {
+            active.remove(id, handle);
+            handle.release();
+            log.warn("Watch already active for {}@{}", sym, FixedPrice.toString(trigger));
+            return existing[0];
+        }
 
-        WatchHandle handle = new WatchHandle(id, key, future, onCross);
-        active.put(key, handle);
+        log.info("👀 Armed trigger: {} @ {} {} (poll={}, timeout={}, id={})", sym, FixedPrice.toString(trigger), mode, poll, to, id);
+        return handle;
+    }
+
+    // One batch price fetch for all due symbols, fanned out to every trigger each price crossed
+    private void pollTick() {
+        // Market data is failing: pause polling until the breaker lets a probe through
+        if (marketData.isPaused()) return;
+        long now = System.nanoTime();
+        boolean streaming = priceSource != null && priceSource.isLive();
+        Map<String, SymbolBook> due = null;
+        for (SymbolBook book : books.values()) {
+            if (!book.claimIfDue(now, streaming)) continue;
+            if (due == null) due = new HashMap<>();
+            due.put(book.symbol, book);
+        }
+        if (due == null) return;
 
-        // Auto-cancel after timeout (extra protection) — no interruption
-        scheduler.schedule(() -> {
-            if (active.containsKey(key)) {
-                log.info("⏳ Auto-cancel (timeout) for {}", key);
-                cancelInternal(key, /*interrupt*/ false);
+        // Async: the poll thread never waits on HTTP or retry back-off; a symbol is not
+        // claimed again while its previous request is still in flight
+        final Map<String, SymbolBook> polled = due;
+        marketData.latestTradePrices(polled.keySet(), (symbol, last) -> {
+            SymbolBook book = polled.get(symbol);
+            if (book != null) onPrice(book, last);
+        }).whenComplete((v, t) -> {
+            for (SymbolBook book : polled.values()) book.inFlight = false;
+            if (t != null) {
+                Throwable cause = AlpacaClient.unwrap(t);
+                if (cause instanceof AlpacaRateLimiter.ShedException || cause instanceof CircuitBreaker.OpenException) {
+                    log.debug("Poll skipped for {}: {}", polled.keySet(), cause.getMessage());
+                } else {
+                    logPollError(polled.keySet(), cause);
+                }
             }
-        }, to.toMillis(), TimeUnit.MILLISECONDS);
+        });
+    }
 
-        log.info("👀 Armed trigger: {} @ {} (poll={}, timeout={}, id={})", sym, trg, poll, to, id);
-        return handle;
+    // One line per POLL_ERROR_LOG_EVERY_NANOS at most, no stack trace: an outage must not flood the log
+    private void logPollError(Set<String> symbols, Throwable cause) {
+        long now = System.nanoTime();
+        long last = lastPollErrorLogAt.get();
+        if (last != 0 && now - last < POLL_ERROR_LOG_EVERY_NANOS || !lastPollErrorLogAt.compareAndSet(last, now)) {
+            suppressedPollErrors.incrementAndGet();
+            return;
+        }
+        long suppressed = suppressedPollErrors.getAndSet(0);
+        log.warn("⚠️ Polling error for {}: {}{}", symbols, cause.toString(),
+                suppressed > 0 ? " (" + suppressed + " more since the last report)" : "");
+    }
+
+    // ---- Streaming path ----
+    private void onPushedTrade(String symbol, long price) {
+        SymbolBook book = books.get(symbol);
+        if (book == null) return;
+        book.lastPushAt = System.nanoTime();
+        onPrice(book, price);
+    }
+
+    private void onPushedQuote(String symbol, long bid, long ask) {
+        SymbolBook book = books.get(symbol);
+        if (book != null) marketData.offerQuote(symbol, book.quote(bid, ask));
+    }
+
+    // Completed 1-minute bars of a watched symbol, oldest first (empty once nothing is armed on it)
+    public List<MinuteBars.Bar> recentBars(String symbol, int n) {
+        SymbolBook book = books.get(symbol.trim().toUpperCase());
+        return book == null ? List.of() : book.lastBars(n);
     }
 
-    private void cancelInternal(String key, boolean interrupt) {
-        WatchHandle h = active.remove(key);
-        if (h != null) {
-            try { h.future.cancel(interrupt); } catch (Exception ignored) {}
+    // Recent ticks of a watched symbol, oldest first
+    public List<MinuteBars.Tick> recentTicks(String symbol, int n) {
+        SymbolBook book = books.get(symbol.trim().toUpperCase());
+        return book == null ? List.of() : book.lastTicks(n);
+    }
+
+    // A price from any source: fire every trigger it crossed, then re-plan the next poll
+    private void onPrice(SymbolBook book, long last) {
+        List<WatchHandle> crossed = book.crossed(last, System.currentTimeMillis());
+        boolean near = book.observe(last, System.nanoTime());
+        if (crossed.isEmpty()) {
+            // About to cross: make sure the order will not wait on a connection handshake
+            if (near && warmer != null) warmer.prewarm();
+            return;
+        }
+
+        Instant crossedAt = Instant.now();
+        AlpacaClient.Quote quote = book.freshQuote(System.nanoTime());
+        for (WatchHandle handle : crossed) {
+            fire(handle, last, crossedAt, quote);
         }
+        releaseIfEmpty(book.symbol);
+    }
+
+    private void fire(WatchHandle handle, long last, Instant now, AlpacaClient.Quote quote) {
+        // Remove from the map first to prevent duplication
+        if (!active.remove(handle.id, handle)) return;
+        handle.release();
+        TriggerEvent evt = new TriggerEvent(handle.symbol, handle.trigger, last, now, quote);
+        // Execute the callback on the callback executor, never on the poll thread
+        try {
+            callbacks.execute(() -> handle.callback.accept(evt));
+        } catch (RejectedExecutionException e) {
+            log.error("🚫 Trigger {}@{} crossed but its callback was dropped: {}",
+                    handle.symbol, FixedPrice.toString(handle.trigger), e.getMessage());
+        }
+    }
+
+    private void cancelInternal(String id) {
+        WatchHandle h = active.remove(id);
+        if (h == null) return;
+        h.release();
+        SymbolBook book = books.get(h.symbol);
+        if (book != null) book.remove(h);
+        releaseIfEmpty(h.symbol);
+    }
+
+    // Stop polling the symbol once its last trigger is gone
+    private void releaseIfEmpty(String symbol) {
+        books.computeIfPresent(symbol, (s, book) -> {
+            if (!book.isEmpty()) return book;
+            if (priceSource != null) priceSource.unsubscribe(s);
+            return null;
+        });
     }
 
     @PreDestroy
     public void shutdown() {
         log.info("Stopping PriceWatcherService...");
-        active.keySet().forEach(k -> cancelInternal(k, false));
+        active.keySet().forEach(this::cancelInternal);
+        if (priceSource != null) priceSource.stop();
         scheduler.shutdownNow();
     }
 
-    private static class WatchHandle implements Arm {
+    // Armed triggers of one symbol, sorted by level, plus the poll cadence shared by all of them
+    private static final class SymbolBook {
+        final String symbol;
+        final TriggerIndex<WatchHandle> triggers = new TriggerIndex<>();
+        // Triggers that need a completed minute close, checked against the bars built from every price seen
+        final TriggerIndex<WatchHandle> closeTriggers = new TriggerIndex<>();
+        private final MinuteBars bars = new MinuteBars();
+        long pollNanos;
+        long nextPollAt;
+        volatile boolean inFlight;
+        volatile long lastPushAt;
+        // Adaptive polling: last observation and EWMA volatility in bps per sqrt(second)
+        private double lastPx;
+        private long lastPxAt;
+        private double sigma;
+        private AlpacaClient.Quote lastQuote;
+        private long quoteAt;
+
+        SymbolBook(String symbol) { this.symbol = symbol; }
+
+        // Returns the watch already armed at this level instead of adding a duplicate
+        synchronized WatchHandle add(WatchHandle handle, long pollMillis) {
+            WatchHandle existing = index(handle).putIfAbsent(handle.trigger, handle);
+            if (existing != null) return existing;
+            long poll = TimeUnit.MILLISECONDS.toNanos(pollMillis);
+            // Until prices arrive the caller's cadence applies; afterwards observe() re-plans it
+            if (lastPxAt == 0 && (pollNanos == 0 || poll < pollNanos)) pollNanos = poll;
+            // A new trigger may be the nearest one: poll on the next tick
+            nextPollAt = System.nanoTime();
+            return null;
+        }
+
+        // True (and books the following poll) when this symbol should be fetched now
+        synchronized boolean claimIfDue(long now, boolean streaming) {
+            if (inFlight || isEmpty() || now - nextPollAt < 0) return false;
+            if (streaming && lastPushAt != 0 && now - lastPushAt < STREAM_STALE_NANOS) {
+                // The stream is feeding this symbol: only check back once it goes quiet
+                nextPollAt = lastPushAt + STREAM_STALE_NANOS;
+                return false;
+            }
+            nextPollAt = now + pollNanos;
+            inFlight = true;
+            return true;
+        }
+
+        // Next poll from distance to the nearest armed trigger and recent volatility:
+        // close or fast-moving symbols poll hot (100 ms), far and quiet ones back off (5 s).
+        // Returns true when the price is within PREWARM_BPS of the nearest trigger.
+        synchronized boolean observe(long price, long now) {
+            double px = FixedPrice.toDouble(price);
+            if (px <= 0) return false;
+            if (lastPxAt != 0 && now > lastPxAt) {
+                double moveBps = Math.abs(px - lastPx) / lastPx * 10_000;
+                double dtSec = (now - lastPxAt) / 1e9;
+                double sample = moveBps / Math.sqrt(dtSec);
+                sigma = sigma == 0 ? sample : sigma + VOL_ALPHA * (sample - sigma);
+            }
+            lastPx = px;
+            lastPxAt = now;
+
+            long nearest = nearest(triggers.ceilingAbove(price), closeTriggers.ceilingAbove(price));
+            if (nearest < 0 && closeTriggers.isEmpty()) return false;
+
+            double millis = MAX_POLL_MILLIS;
+            double distBps = Double.MAX_VALUE;
+            if (nearest >= 0) {
+                distBps = (FixedPrice.toDouble(nearest) - px) / px * 10_000;
+                // Distance rule: linear from the floor at 0 bps up to MAX_POLL_MILLIS at FAR_BPS
+                millis = MAX_POLL_MILLIS * distBps / FAR_BPS;
+                // Volatility rule (random walk): expected time to cover distBps is (distBps / sigma)^2 s
+                if (sigma > 0) {
+                    double crossSec = (distBps / sigma) * (distBps / sigma);
+                    millis = Math.min(millis, crossSec * 1000 / POLLS_BEFORE_CROSS);
+                }
+            }
+            // Close triggers: one poll right after each minute boundary closes the bar promptly
+            if (!closeTriggers.isEmpty()) {
+                long toBoundary = MinuteBars.BAR_MILLIS - Math.floorMod(System.currentTimeMillis(), MinuteBars.BAR_MILLIS);
+                millis = Math.min(millis, toBoundary + TICK_MILLIS);
+            }
+            long next = Math.max(TICK_MILLIS, Math.min(MAX_POLL_MILLIS, (long) millis));
+            pollNanos = TimeUnit.MILLISECONDS.toNanos(next);
+            nextPollAt = now + pollNanos;
+            return distBps <= PREWARM_BPS;
+        }
+
+        synchronized AlpacaClient.Quote quote(long bid, long ask) {
+            lastQuote = new AlpacaClient.Quote(bid, ask);
+            quoteAt = System.nanoTime();
+            return lastQuote;
+        }
+
+        synchronized AlpacaClient.Quote freshQuote(long now) {
+            return lastQuote != null && now - quoteAt < QUOTE_MAX_AGE_NANOS ? lastQuote : null;
+        }
+
+        synchronized void remove(WatchHandle handle) {
+            index(handle).remove(handle.trigger, handle);
+        }
+
+        // Every LAST trigger <= last is crossed: O(log n + k). The price also feeds the bars; when it
+        // completes a minute, every MINUTE_CLOSE trigger <= that bar's close is crossed too.
+        synchronized List<WatchHandle> crossed(long last, long atMillis) {
+            List<WatchHandle> hit = triggers.pollAtOrBelow(last);
+            if (!bars.onTick(last, atMillis) || closeTriggers.isEmpty()) return hit;
+            List<WatchHandle> closed = closeTriggers.pollAtOrBelow(bars.lastClose());
+            if (closed.isEmpty()) return hit;
+            if (hit.isEmpty()) return closed;
+            List<WatchHandle> all = new ArrayList<>(hit);
+            all.addAll(closed);
+            return all;
+        }
+
+        synchronized List<MinuteBars.Bar> lastBars(int n) { return bars.lastBars(n); }
+
+        synchronized List<MinuteBars.Tick> lastTicks(int n) { return bars.lastTicks(n); }
+
+        synchronized boolean isEmpty() { return triggers.isEmpty() && closeTriggers.isEmpty(); }
+
+        private TriggerIndex<WatchHandle> index(WatchHandle handle) {
+            return handle.type == TriggerType.MINUTE_CLOSE ? closeTriggers : triggers;
+        }
+
+        // Lower of two levels where -1 means none
+        private static long nearest(long a, long b) {
+            if (a < 0) return b;
+            if (b < 0) return a;
+            return Math.min(a, b);
+        }
+    }
+
+    private final class WatchHandle implements Arm {
         final String id;
-        final String key;
-        final ScheduledFuture<?> future;
+        final String symbol;
+        final long trigger;
+        final TriggerType type;
         final Consumer<TriggerEvent> callback;
-        WatchHandle(String id, String key, ScheduledFuture<?> future, Consumer<TriggerEvent> callback) {
-            this.id = id; this.key = key; this.future = future; this.callback = callback;
+        volatile HashedTimingWheel.Timeout expiry;
+        volatile boolean done;
+        WatchHandle(String id, String symbol, long trigger, TriggerType type, Consumer<TriggerEvent> callback) {
+            this.id = id; this.symbol = symbol; this.trigger = trigger; this.type = type; this.callback = callback;
+        }
+        void release() {
+            done = true;
+            HashedTimingWheel.Timeout t = expiry;
+            if (t != null) t.cancel();
         }
-        @Override public void cancel() { future.cancel(false); }
-        @Override public boolean isActive() { return !future.isDone() && !future.isCancelled(); }
+        @Override public void cancel() { cancelInternal(id); }
+        @Override public boolean isActive() { return !done; }
         @Override public String id() { return id; }
     }
 }
@@ -0,0 +1,28 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Config maps are keyed by name (alpaca.stages.await-fill.*): mapped onto the enum here, where it lives.
+// A key that names nothing fails at startup instead of being ignored.
+final class PropertyKeys {
+
+    private PropertyKeys() {}
+
+    static <E extends Enum<E>, V> Map<E, V> byEnum(Class<E> type, Map<String, V> values, String property) {
+        Map<E, V> out = new EnumMap<>(type);
+        if (values == null) return out;
+        values.forEach((key, value) -> {
+            String name = key.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            E constant = Arrays.stream(type.getEnumConstants())
+                    .filter(e -> e.name().equals(name))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException(property + "." + key + " names no "
+                            + type.getSimpleName() + " (one of " + Arrays.toString(type.getEnumConstants()) + ")"));
+            out.put(constant, value);
+        });
+        return out;
+    }
+}
@@ -0,0 +1,13 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+// Priority of an Alpaca request, highest first. Decides who gets the shared request budget.
+public enum RequestClass {
+    // Order submission and cancellation: never waits behind anything else
+    ORDER,
+    // Fill checks and the lookups an execution in progress depends on: waits for budget, never shed
+    FILL,
+    // Price polling: shed when the budget runs low (the next poll tick asks again)
+    MARKET_DATA,
+    // Account and order-list sweeps: first to be shed
+    HOUSEKEEPING
+}
@@ -0,0 +1,37 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// Retry settings of one request class. Delays use decorrelated jitter:
+// next = random(base, 3 x previous), capped at maxDelayMs.
+public record RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs, long maxElapsedMs) {
+
+    // Orders retry fast (a stable client_order_id makes resubmission safe); polls barely retry
+    // because the next tick asks again anyway
+    public static RetryPolicy defaults(RequestClass cls) {
+        return switch (cls) {
+            case ORDER -> new RetryPolicy(3, 100, 1_000, 5_000);
+            case FILL -> new RetryPolicy(3, 200, 2_000, 10_000);
+            case MARKET_DATA -> new RetryPolicy(1, 250, 1_000, 2_000);
+            case HOUSEKEEPING -> new RetryPolicy(2, 1_000, 10_000, 30_000);
+        };
+    }
+
+    // Defaults of the class with any alpaca.retry.<class>.* overrides applied
+    public static RetryPolicy of(RequestClass cls, AlpacaProperties.Retry override) {
+        RetryPolicy d = defaults(cls);
+        if (override == null) return d;
+        return new RetryPolicy(
+                override.getMaxRetries() != null ? override.getMaxRetries() : d.maxRetries(),
+                override.getBaseDelayMs() != null ? override.getBaseDelayMs() : d.baseDelayMs(),
+                override.getMaxDelayMs() != null ? override.getMaxDelayMs() : d.maxDelayMs(),
+                override.getMaxElapsedMs() != null ? override.getMaxElapsedMs() : d.maxElapsedMs());
+    }
+
+    public long nextDelayMs(long previousMs) {
+        long upper = Math.max(baseDelayMs, previousMs * 3);
+        return Math.min(maxDelayMs, ThreadLocalRandom.current().nextLong(baseDelayMs, upper + 1));
+    }
+}
@@ -0,0 +1,236 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Model.AppSettings;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+// Pre-trade guards decided in memory on a fresh snapshot: spread, slippage cap, minimum volume, buying power,
+// per-symbol and total exposure, concurrent positions. Limits are precomputed from AppSettings each time
+// a new settings row is loaded and held positions come from the AccountBook, so the decision path makes
+// no DB or HTTP call. An entry that goes ahead reserves its notional until its fill is known (onFill / release).
+@Service
+public class RiskEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskEngine.class);
+
+    public enum Rule { NO_QUOTE, SPREAD, SLIPPAGE, VOLUME, BUYING_POWER, SYMBOL_EXPOSURE, TOTAL_EXPOSURE, MAX_POSITIONS }
+
+    public record Rejection(Rule rule, String detail) {
+        @Override
+        public String toString() { return rule + ": " + detail; }
+    }
+
+    public static class RejectedException extends IllegalStateException {
+        private final Rejection rejection;
+
+        public RejectedException(Rejection rejection) {
+            super(rejection.toString());
+            this.rejection = rejection;
+        }
+
+        public Rejection rejection() { return rejection; }
+    }
+
+    // Guards in bps, volume in shares, notionals as FixedPrice; Long/Integer.MAX_VALUE when unlimited
+    public record Limits(int spreadGuardBps, int maxSlippageBps, long minVolume,
+                         long maxSymbolExposure, long maxTotalExposure, int maxOpenPositions) {
+
+        public static Limits of(AppSettings s) {
+            return new Limits(
+                    s.getAlpacaSpreadGuardBps() != null ? s.getAlpacaSpreadGuardBps() : Integer.MAX_VALUE,
+                    s.getAlpacaMaxSlippageBps() != null ? s.getAlpacaMaxSlippageBps() : 0,
+                    s.getAlpacaMinVolume() != null ? s.getAlpacaMinVolume() : 0,
+                    notional(s.getAlpacaMaxSymbolExposure()),
+                    notional(s.getAlpacaMaxTotalExposure()),
+                    s.getAlpacaMaxOpenPositions() != null ? s.getAlpacaMaxOpenPositions() : Integer.MAX_VALUE);
+        }
+
+        private static long notional(BigDecimal usd) {
+            return usd != null ? FixedPrice.of(usd) : Long.MAX_VALUE;
+        }
+    }
+
+    // One symbol's entries accepted but not filled yet
+    private static final class Pending {
+        int qty;
+        long notional;
+    }
+
+    private final SettingsService settings;
+    private final AccountBook book;
+    private volatile Limits limits;
+
+    private final Map<String, Pending> pending = new HashMap<>(); // guarded by this
+    private long pendingNotional;                                 // guarded by this
+
+    private final Map<Rule, Counter> rejectedCounters = new EnumMap<>(Rule.class);
+
+    @Autowired
+    public RiskEngine(SettingsService settings, AccountBook book, ObjectProvider<MeterRegistry> meters) {
+        this.settings = settings;
+        this.book = book;
+        this.limits = Limits.of(new AppSettings());
+        settings.onChange(this::reload);
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) {
+            for (Rule rule : Rule.values()) {
+                rejectedCounters.put(rule, Counter.builder("trade.risk.rejected").tag("rule", rule.name().toLowerCase())
+                        .description("Entries refused by a pre-trade guard").register(registry));
+            }
+        }
+    }
+
+    // Without a book only the pending entries count as exposure, and buying power is not checked
+    public RiskEngine(Limits limits) {
+        this(limits, null);
+    }
+
+    public RiskEngine(Limits limits, AccountBook book) {
+        this.settings = null;
+        this.book = book;
+        this.limits = limits;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (settings == null) return;
+        try {
+            reload(settings.get());
+        } catch (RuntimeException e) {
+            log.warn("⚠️ Risk limits: app_settings not readable yet ({}), using defaults {}", e.getMessage(), limits);
+        }
+    }
+
+    public void reload(AppSettings s) {
+        Limits next = Limits.of(s);
+        if (!next.equals(limits)) {
+            limits = next;
+            log.info("🛡️ Risk limits: {}", next);
+        }
+    }
+
+    public Limits limits() { return limits; }
+
+    // Minimum volume is the only guard a plain quote cannot answer
+    public boolean needsVolume() { return limits.minVolume() > 0; }
+
+    // Entry limit price: the trigger plus the slippage the settings allow
+    public long limitPrice(long trigger) {
+        return trigger + trigger * limits.maxSlippageBps() / 10_000;
+    }
+
+    // All guards on one snapshot (dailyVolume < 0 when unknown). Nothing is held yet: reserve() does that
+    // once the entry goes ahead, so a check whose caller already gave up leaves no exposure behind.
+    public Rejection check(String symbol, int qty, long trigger, AlpacaClient.Snapshot snap) {
+        Limits l = limits;
+        long bid = snap.bid();
+        long ask = snap.ask();
+        if (ask <= 0 || bid <= 0 || bid > ask) {
+            return reject(Rule.NO_QUOTE, "no usable quote (bid " + FixedPrice.toString(bid) + ", ask " + FixedPrice.toString(ask) + ")");
+        }
+        long spreadBps = (ask - bid) * 10_000 / ask;
+        if (spreadBps > l.spreadGuardBps()) {
+            return reject(Rule.SPREAD, "spread " + spreadBps + " bps > " + l.spreadGuardBps() + " bps");
+        }
+        long limit = limitPrice(trigger);
+        if (ask > limit) {
+            return reject(Rule.SLIPPAGE, "ask " + FixedPrice.toString(ask) + " above the " + l.maxSlippageBps()
+                    + " bps cap " + FixedPrice.toString(limit));
+        }
+        if (l.minVolume() > 0 && snap.dailyVolume() >= 0 && snap.dailyVolume() < l.minVolume()) {
+            return reject(Rule.VOLUME, "volume " + snap.dailyVolume() + " < " + l.minVolume());
+        }
+        synchronized (this) {
+            return exposureRejection(symbol, qty, qty * limit, l);
+        }
+    }
+
+    // Holds qty x limit price until the fill is known (onFill / release). The exposure guards run again under
+    // the same lock, so two entries accepted at once can never both take the last of a limit.
+    public Rejection reserve(String symbol, int qty, long trigger) {
+        long notional = qty * limitPrice(trigger);
+        synchronized (this) {
+            Rejection rejection = exposureRejection(symbol, qty, notional, limits);
+            if (rejection != null) return rejection;
+            Pending e = pending.computeIfAbsent(symbol, s -> new Pending());
+            e.qty += qty;
+            e.notional += notional;
+            pendingNotional += notional;
+        }
+        return null;
+    }
+
+    // Buying power, symbol and total exposure, concurrent positions; the caller holds the lock
+    private Rejection exposureRejection(String symbol, int qty, long notional, Limits l) {
+        Pending e = pending.get(symbol);
+        boolean seeded = book != null && book.isSeeded();
+        if (qty <= 0 || seeded && pendingNotional + notional > book.buyingPower()) {
+            return reject(Rule.BUYING_POWER, "needs " + FixedPrice.toString(pendingNotional + notional) + ", buying power "
+                    + (seeded ? FixedPrice.toString(book.buyingPower()) : "unknown"));
+        }
+        long symbolNotional = (e == null ? 0 : e.notional) + (book == null ? 0 : book.exposure(symbol));
+        if (symbolNotional + notional > l.maxSymbolExposure()) {
+            return reject(Rule.SYMBOL_EXPOSURE, symbol + " exposure " + FixedPrice.toString(symbolNotional + notional)
+                    + " > " + FixedPrice.toString(l.maxSymbolExposure()));
+        }
+        long total = pendingNotional + (book == null ? 0 : book.totalExposure());
+        if (total + notional > l.maxTotalExposure()) {
+            return reject(Rule.TOTAL_EXPOSURE, "total exposure " + FixedPrice.toString(total + notional)
+                    + " > " + FixedPrice.toString(l.maxTotalExposure()));
+        }
+        int positions = openPositions();
+        boolean newSymbol = e == null && (book == null || book.position(symbol) == null);
+        if (newSymbol && positions >= l.maxOpenPositions()) {
+            return reject(Rule.MAX_POSITIONS, positions + " positions open, max " + l.maxOpenPositions());
+        }
+        return null;
+    }
+
+    // The entry of reservedQty shares filled filledQty at price: the fill moves from pending into the book
+    public void onFill(String symbol, int reservedQty, int filledQty, long price) {
+        synchronized (this) {
+            release(symbol, reservedQty);
+            if (book != null) book.onFill(symbol, filledQty, price);
+        }
+    }
+
+    // Hands back qty pending shares of a symbol (entry not filled, or failed before its fill was known)
+    public synchronized void release(String symbol, int qty) {
+        Pending e = pending.get(symbol);
+        if (e == null || qty <= 0) return;
+        long freed = qty >= e.qty ? e.notional : e.notional * qty / e.qty;
+        e.qty -= Math.min(qty, e.qty);
+        e.notional -= freed;
+        pendingNotional -= freed;
+        if (e.qty == 0) pending.remove(symbol);
+    }
+
+    // Held positions plus symbols with only a pending entry
+    public synchronized int openPositions() {
+        if (book == null) return pending.size();
+        int n = book.openPositions();
+        for (String symbol : pending.keySet()) {
+            if (book.position(symbol) == null) n++;
+        }
+        return n;
+    }
+
+    public synchronized long pendingExposure() { return pendingNotional; }
+
+    private Rejection reject(Rule rule, String detail) {
+        Counter c = rejectedCounters.get(rule);
+        if (c != null) c.increment();
+        return new Rejection(rule, detail);
+    }
+}
@@ -8,7 +8,10 @@
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 @Service
 public class SettingsService {
@@ -21,6 +24,9 @@ public class SettingsService {
     private Instant lastLoad = Instant.EPOCH;
     private final Duration ttl = Duration.ofSeconds(10);
 
+    // Told about every settings row loaded or saved (e.g. to precompute limits)
+    private final List<Consumer<AppSettings>> listeners = new CopyOnWriteArrayList<>();
+
     public SettingsService(AppSettingsRepository repo) {
         this.repo = repo;
     }
@@ -29,10 +35,15 @@ public synchronized AppSettings get() {
         if (cached == null || Instant.now().isAfter(lastLoad.plus(ttl))) {
             cached = repo.findById(1L).orElseThrow(() -> new NoSuchElementException("app_settings not initialized"));
             lastLoad = Instant.now();
+            notifyListeners(cached);
         }
         return cached;
     }
 
+    public void onChange(Consumer<AppSettings> listener) {
+        listeners.add(listener);
+    }
+
     @Transactional
     public synchronized AppSettings update(AppSettings incoming) {
         incoming.setId(1L);
@@ -40,6 +51,11 @@ public synchronized AppSettings update(AppSettings incoming) {
         AppSettings saved = repo.save(incoming);
         cached = saved;
         lastLoad = Instant.now();
+        notifyListeners(saved);
         return saved;
     }
+
+    private void notifyListeners(AppSettings s) {
+        for (Consumer<AppSettings> l : listeners) l.accept(s);
+    }
 }
\ No newline at end of file
@@ -36,6 +36,7 @@ public class TelegramClientService {
     private final TelegramProperties props;
     private final SettingsService settings;
     private final TradeExecutorService executor;
+    private final AccountBook book;
 
     private SimpleTelegramClientFactory clientFactory;
     private SimpleTelegramClient client;
@@ -45,10 +46,12 @@ public class TelegramClientService {
     private AiSignalParser aiParser;
     private boolean aiAvailable = false;
 
-    public TelegramClientService(TelegramProperties props, SettingsService settings, TradeExecutorService executor, TradeAuditService audit) {
+    public TelegramClientService(TelegramProperties props, SettingsService settings, TradeExecutorService executor,
+                                 AccountBook book, TradeAuditService audit) {
         this.props = props;
         this.settings = settings;
         this.executor = executor;
+        this.book = book;
         this.audit = audit;
     }
 
@@ -76,6 +79,11 @@ public void initAndStart() {
                 appSettings.getFixedBudget(), appSettings.getTpPercent(),
                 appSettings.getSessionDir(), appSettings.isAlpacaExtendedHours());
 
+        // Plans re-armed from the trigger journal, so edits and deletes still reach them
+        Map<String, TradeSignal> restored = executor.restoredSignals();
+        activeSignals.putAll(restored);
+        if (!restored.isEmpty()) log.info("♻️ {} plan(s) restored before connecting", restored.size());
+
         // ===== TDLight =====
         try {
             APIToken apiToken = new APIToken(props.getApiId(), props.getApiHash());
@@ -170,8 +178,8 @@ private void onNewMessage(TdApi.UpdateNewMessage update) {
         }
         log.info("Incoming message [chatId={}, msgId={}]:\n{}", chatId, msgId, body);
 
-        // Transaction logic from DB
-        TradeLogic logic = new TradeLogic(appSettings.getFixedBudget(), appSettings.getTpPercent());
+        // Transaction logic from DB, budget capped at the buying power left
+        TradeLogic logic = new TradeLogic(appSettings.getFixedBudget(), appSettings.getTpPercent(), book.buyingPowerUsd());
 
         // 1 - Regex
         if (appSettings.isRegexEnabled()) {
@@ -184,7 +192,7 @@ private void onNewMessage(TdApi.UpdateNewMessage update) {
                         sig.symbol(), sig.trigger(), sig.stop(), sig.targets());
                 log.info("Plan: qty={}, TP={} (+{}%), SL={}",
                         plan.qty(), plan.tp(), appSettings.getTpPercent(), plan.sl());
-                executor.executeSignal(
+                executor.executeSignal(key(chatId, msgId),
                         sig, plan.qty(), appSettings.getTpPercent(), appSettings.isAlpacaExtendedHours()
                 );
                 return;
@@ -204,7 +212,7 @@ private void onNewMessage(TdApi.UpdateNewMessage update) {
                             sig.symbol(), sig.trigger(), sig.stop(), sig.targets());
                     log.info("Plan: qty={}, TP={} (+{}%), SL={}",
                             plan.qty(), plan.tp(), appSettings.getTpPercent(), plan.sl());
-                    executor.executeSignal(
+                    executor.executeSignal(key(chatId, msgId),
                             sig, plan.qty(), appSettings.getTpPercent(), appSettings.isAlpacaExtendedHours()
                     );
                     return;
@@ -257,10 +265,11 @@ private void onMessageContent(TdApi.UpdateMessageContent upd) {
         String k = key(chatId, msgId);
         if (activeSignals.containsKey(k)) {
             activeSignals.remove(k);
+            executor.cancelSignal(k);
             log.info("❌ Canceled old plan for message {}", k);
         }
-        // Transaction logic from DB
-        TradeLogic logic = new TradeLogic(app.getFixedBudget(), app.getTpPercent());
+        // Transaction logic from DB, budget capped at the buying power left
+        TradeLogic logic = new TradeLogic(app.getFixedBudget(), app.getTpPercent(), book.buyingPowerUsd());
 
         // 1 - Regex
         Optional<TradeSignal> parsed = SignalParser.parse(body);
@@ -274,7 +283,7 @@ private void onMessageContent(TdApi.UpdateMessageContent upd) {
             log.info("Plan: qty={}, TP={} (+{}%), SL={}",
                     plan.qty(), plan.tp(), app.getTpPercent(), plan.sl());
 
-            executor.executeSignal(
+            executor.executeSignal(k,
                     sig, plan.qty(), app.getTpPercent(), app.isAlpacaExtendedHours()
             );
             return;
@@ -296,7 +305,7 @@ private void onMessageContent(TdApi.UpdateMessageContent upd) {
                     log.info("Plan: qty={}, TP={} (+{}%), SL={}",
                             plan.qty(), plan.tp(), app.getTpPercent(), plan.sl());
 
-                    executor.executeSignal(
+                    executor.executeSignal(k,
                             sig, plan.qty(), app.getTpPercent(), app.isAlpacaExtendedHours()
                     );
                     return;
@@ -318,6 +327,7 @@ private void onDeleteMessages(TdApi.UpdateDeleteMessages upd) {
             for (long mid : upd.messageIds) {
                 String k = key(upd.chatId, mid);
                 if (activeSignals.remove(k) != null) {
+                    executor.cancelSignal(k);
                     log.info("🗑️ Removed plan due to message deletion: {}", k);
                 }
             }
@@ -1,43 +1,234 @@
 package com.mod98.alpaca.tradingbot.Service;
 
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
 import com.mod98.alpaca.tradingbot.Model.TradeEvent;
-import com.mod98.alpaca.tradingbot.Repository.TradeEventRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
-@RequiredArgsConstructor
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Audit trail of trade events. record() only queues the event (bounded ring buffer, never blocks the
+// trading path); one writer thread drains it in JDBC batches once batchSize events are waiting or the
+// oldest has waited flushMillis. A full buffer drops per the overflow policy; shutdown writes what is left.
 @Service
 public class TradeAuditService {
 
     private static final Logger log = LoggerFactory.getLogger(TradeAuditService.class);
-    private final TradeEventRepository repo;
 
-    public TradeEvent record(String symbol, String eventType, String message) {
-        return record(symbol, eventType, message, null, null);
+    // What a full buffer gives up: the event being recorded, or the oldest one waiting
+    public enum Overflow {
+        DROP_NEWEST, DROP_OLDEST;
+
+        // alpaca.audit-overflow: DROP_OLDEST, drop-oldest, ...
+        public static Overflow parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase().replace('-', '_'));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("alpaca.audit-overflow must be DROP_OLDEST or DROP_NEWEST, not " + value);
+            }
+        }
     }
-    public TradeEvent record(String symbol, String eventType, String message, String orderId) {
-        return record(symbol, eventType, message, orderId, null);
+
+    // Writes one drained batch, in recording order
+    public interface BatchSink {
+        void write(List<TradeEvent> batch);
     }
-    public TradeEvent record(String symbol, String eventType, String message, String orderId, String payloadJson) {
-        try {
-            TradeEvent ev = new TradeEvent();
-            ev.setSymbol(symbol);
-            ev.setEventType(eventType);
-            ev.setMessage(message);
-            ev.setOrderId(orderId);
-            ev.setPayload(payloadJson);
-            TradeEvent saved = repo.save(ev);
-            log.info("[AUDIT:{}] symbol={} orderId={} msg={}", eventType, symbol, orderId, message);
-            return saved;
-        } catch (Exception e) {
-            log.error("[AUDIT:ERROR] Failed to persist audit event: {}", e.getMessage(), e);
-            return null;
+
+    private static final long SHUTDOWN_WAIT_MS = 5_000;
+
+    private final BatchSink sink;
+    private final BlockingQueue<TradeEvent> queue;
+    private final int batchSize;
+    private final long flushMillis;
+    private final Overflow overflow;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private Counter droppedCounter;
+
+    @Autowired
+    public TradeAuditService(JdbcTemplate jdbc, AlpacaProperties props, ObjectProvider<MeterRegistry> meters) {
+        this(new JdbcSink(jdbc), props.getAuditQueueCapacity(), props.getAuditBatchSize(),
+                props.getAuditFlushMs(), Overflow.parse(props.getAuditOverflow()));
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) bindMetrics(registry);
+    }
+
+    public TradeAuditService(BatchSink sink, int capacity, int batchSize, long flushMillis, Overflow overflow) {
+        if (capacity < 1 || batchSize < 1 || flushMillis < 1) {
+            throw new IllegalStateException("Audit writer needs capacity >= 1, batchSize >= 1, flushMillis >= 1");
+        }
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        this.overflow = overflow;
+        this.writer = new Thread(this::drain, "TradeAuditWriter");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        log.info("⚙️ Audit writer: buffer {}, batches of {} or every {} ms, {} when full",
+                capacity, batchSize, flushMillis, overflow);
+    }
+
+    public void record(String symbol, String eventType, String message) {
+        record(symbol, eventType, message, null, null);
+    }
+    public void record(String symbol, String eventType, String message, String orderId) {
+        record(symbol, eventType, message, orderId, null);
+    }
+    public void record(String symbol, String eventType, String message, String orderId, String payloadJson) {
+        TradeEvent ev = new TradeEvent();
+        ev.setSymbol(cut(symbol, 20));
+        ev.setEventType(cut(eventType, 40));
+        ev.setMessage(cut(message, 200));
+        ev.setOrderId(cut(orderId, 64));
+        ev.setPayload(payloadJson);
+        ev.setCreatedAt(Instant.now()); // when it happened, not when the batch is written
+        log.info("[AUDIT:{}] symbol={} orderId={} msg={}", eventType, symbol, orderId, message);
+        if (!running) {
+            drop(ev, "writer stopped");
+            return;
+        }
+        while (!queue.offer(ev)) {
+            if (overflow == Overflow.DROP_NEWEST) {
+                drop(ev, "buffer full");
+                return;
+            }
+            TradeEvent oldest = queue.poll();
+            if (oldest != null) drop(oldest, "buffer full");
         }
     }
 
     public void info(String msg, Object... args)  { log.info("[AUDIT] " + msg, args); }
     public void warn(String msg, Object... args)  { log.warn("[AUDIT] " + msg, args); }
     public void error(String msg, Object... args) { log.error("[AUDIT] " + msg, args); }
+
+    public int queued() { return queue.size(); }
+
+    public long dropped() { return dropped.get(); }
+
+    public long written() { return written.get(); }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(SHUTDOWN_WAIT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) log.warn("⚠️ Audit writer stopped with {} event(s) unwritten", queue.size());
+    }
+
+    // ---- Writer thread ----
+    private void drain() {
+        List<TradeEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                if (running) {
+                    TradeEvent first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) continue;
+                    batch.add(first);
+                    // Fill the batch until it is full or the first event has waited flushMillis
+                    long flushAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                    while (batch.size() < batchSize) {
+                        queue.drainTo(batch, batchSize - batch.size());
+                        long left = flushAt - System.nanoTime();
+                        if (batch.size() >= batchSize || left <= 0) break;
+                        TradeEvent next = queue.poll(left, TimeUnit.NANOSECONDS);
+                        if (next != null) batch.add(next);
+                    }
+                } else {
+                    queue.drainTo(batch, batchSize);
+                }
+            } catch (InterruptedException e) {
+                // shutdown: whatever was taken still gets written, the rest on the next rounds
+                queue.drainTo(batch, batchSize - batch.size());
+            }
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<TradeEvent> batch) {
+        if (batch.isEmpty()) return;
+        try {
+            sink.write(batch);
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            dropped.addAndGet(batch.size());
+            if (droppedCounter != null) droppedCounter.increment(batch.size());
+            log.error("[AUDIT:ERROR] Failed to persist {} audit event(s): {}", batch.size(), e.getMessage(), e);
+        }
+    }
+
+    private void drop(TradeEvent ev, String why) {
+        dropped.incrementAndGet();
+        if (droppedCounter != null) droppedCounter.increment();
+        log.warn("[AUDIT:DROPPED] {} {} ({})", ev.getEventType(), ev.getSymbol(), why);
+    }
+
+    private static String cut(String s, int max) {
+        return s == null || s.length() <= max ? s : s.substring(0, max);
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("trade.audit.queued", this, TradeAuditService::queued)
+                .description("Audit events waiting for the writer").register(registry);
+        droppedCounter = Counter.builder("trade.audit.dropped")
+                .description("Audit events lost to a full buffer or a failed write").register(registry);
+    }
+
+    // Batched INSERT into trade_events (multi-row with reWriteBatchedInserts=true on the PostgreSQL URL).
+    // payload_json is an oid large object where Hibernate created the table from the @Lob mapping.
+    private static final class JdbcSink implements BatchSink {
+        private final JdbcTemplate jdbc;
+        private volatile String sql;
+
+        JdbcSink(JdbcTemplate jdbc) { this.jdbc = jdbc; }
+
+        @Override
+        public void write(List<TradeEvent> batch) {
+            jdbc.batchUpdate(sql(), batch, batch.size(), (ps, ev) -> {
+                ps.setString(1, ev.getSymbol());
+                ps.setString(2, ev.getEventType());
+                ps.setString(3, ev.getMessage());
+                ps.setString(4, ev.getOrderId());
+                ps.setString(5, ev.getPayload());
+                ps.setTimestamp(6, Timestamp.from(ev.getCreatedAt()));
+            });
+        }
+
+        private String sql() {
+            if (sql == null) {
+                List<String> type = jdbc.queryForList("""
+                        SELECT data_type FROM information_schema.columns
+                        WHERE table_name = 'trade_events' AND column_name = 'payload_json'
+                        """, String.class);
+                String payload = !type.isEmpty() && "oid".equals(type.get(0))
+                        ? "lo_from_bytea(0, convert_to(?, 'UTF8'))" : "?";
+                sql = "INSERT INTO trade_events (symbol, event_type, message, order_id, payload_json, created_at) "
+                        + "VALUES (?, ?, ?, ?, " + payload + ", ?)";
+            }
+            return sql;
+        }
+    }
 }
@@ -1,69 +1,512 @@
 package com.mod98.alpaca.tradingbot.Service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
 import com.mod98.alpaca.tradingbot.Parsing.TradeSignal;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.DayOfWeek;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @RequiredArgsConstructor
 @Service
 public class TradeExecutorService {
 
+    private static final Logger log = LoggerFactory.getLogger(TradeExecutorService.class);
+
+    // How often an open entry order is checked for fills; only a fallback while fills are pushed
+    private static final Duration FILL_CHECK_EVERY = Duration.ofMillis(500);
+    private static final Duration FILL_RECONCILE_EVERY = Duration.ofSeconds(5);
+    // After a failed status read or cancel (Alpaca down, breaker open, request shed)
+    private static final Duration FILL_RETRY_EVERY = Duration.ofSeconds(2);
+    private static final Duration WATCH_POLL = Duration.ofMillis(1200);
+    private static final Duration WATCH_TIMEOUT = Duration.ofMinutes(15);
+    // Settling an entry its stage gave up on: retried this often, this many times
+    private static final Duration RECONCILE_RETRY = Duration.ofSeconds(5);
+    private static final int RECONCILE_ATTEMPTS = 60;
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final LocalTime MARKET_OPEN = LocalTime.of(9, 30);
+    private static final LocalTime MARKET_CLOSE = LocalTime.of(16, 0);
+
     private final AlpacaClient alpaca;
+    private final MarketDataCache marketData;
     private final PriceWatcherService watcher;
     private final TradeAuditService audit;
+    private final HashedTimingWheel deadlines;
+    private final AlpacaProperties props;
+    private final TriggerJournal journal;
+    private final ExecutionPipeline pipeline;
+    private final RiskEngine risk;
+    private final TradeRecordService records;
+
+    // Signal source (e.g. Telegram chat|message) -> its armed watch, so edits and deletes can cancel it
+    private final Map<String, Tracked> bySource = new ConcurrentHashMap<>();
+
+    private record Tracked(String journalId, PriceWatcherService.Arm arm, TradeSignal signal) {}
+
+    // Journal id -> the deadline that drops its entry; cancelled as soon as the entry is done some other way
+    private final Map<String, HashedTimingWheel.Timeout> expiries = new ConcurrentHashMap<>();
+
+    // Entry orders waiting for their fill, by order id: completed by a pushed trade update or by the fill check
+    private final Map<String, FillWait> fillWaits = new ConcurrentHashMap<>();
+    private volatile BooleanSupplier pushLive = () -> false;
+    // Bracket entries only go out inside the regular session; tests swap the clock rule
+    private volatile Predicate<Instant> regularSession = TradeExecutorService::isRegularSession;
+
+    // One thread: entry, then exit orders of a trade are written in the order they happened
+    private final ExecutorService recordWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "TradeRecordWriter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private record FillWait(Entry entry, CompletableFuture<Fill> done) {}
 
-    public void executeSignal(TradeSignal sig, int qty, BigDecimal tpPercent, boolean extendedHours) {
+    // Warm restart: re-arm every journaled trigger before the Telegram client starts
+    @PostConstruct
+    public void restoreArmed() {
+        long started = System.nanoTime();
+        List<TriggerJournal.Armed> armed = journal.live();
+        for (TriggerJournal.Armed a : armed) {
+            arm(a);
+        }
+        if (!armed.isEmpty()) {
+            log.info("♻️ Restored {} armed trigger(s) from the journal in {} ms",
+                    armed.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        }
+    }
+
+    // Signals re-armed from the journal, by source key
+    public Map<String, TradeSignal> restoredSignals() {
+        Map<String, TradeSignal> out = new HashMap<>();
+        bySource.forEach((k, t) -> out.put(k, t.signal()));
+        return out;
+    }
+
+    public void executeSignal(String sourceKey, TradeSignal sig, int qty, BigDecimal tpPercent, boolean extendedHours) {
         // 1-Arming record
         audit.record(sig.symbol(), "ARMED",
-                "Armed trigger at " + sig.trigger() + " with SL " + sig.stop());
+                "Armed trigger at " + sig.trigger() + " (" + sig.triggerType() + ") with SL " + sig.stop());
+
+        // Journal first so a restart right after this line still knows the trigger
+        var a = new TriggerJournal.Armed(UUID.randomUUID().toString(), sourceKey, sig, qty, tpPercent,
+                extendedHours, Instant.now().plus(WATCH_TIMEOUT));
+        journal.armed(a);
+        arm(a);
+    }
+
+    // live: whether fills are being pushed right now (the fill checks then only reconcile)
+    public void pushedBy(BooleanSupplier live) {
+        this.pushLive = live;
+    }
+
+    // Pushed by the trade-updates stream, on its thread: completes a waiting entry without a REST round trip
+    public void onTradeUpdate(TradeUpdatesStream.TradeUpdate u) {
+        FillWait w = fillWaits.get(u.order().id());
+        if (w == null) return;
+        if (u.isFill()) {
+            w.done().complete(new Fill(u.order().filledQty(), u.order().filledAvgPrice(), false));
+        } else if (u.isFinal() && Instant.now().isBefore(w.entry().deadline())) {
+            // Cancelled, expired or rejected elsewhere (maybe after a partial fill): settle it through the usual
+            // check. Past the deadline the cancel is the fill check's own, which settles it already.
+            checkFill(w.entry(), w.done());
+        }
+    }
+
+    // Cancel the watch armed for this source, if it has not fired yet
+    public boolean cancelSignal(String sourceKey) {
+        Tracked t = bySource.remove(sourceKey);
+        if (t == null) return false;
+        t.arm().cancel();
+        retire(t.journalId());
+        audit.record(t.signal().symbol(), "CANCELLED", "Trigger at " + t.signal().trigger() + " cancelled (" + sourceKey + ")");
+        return true;
+    }
+
+    private void arm(TriggerJournal.Armed a) {
+        TradeSignal sig = a.signal();
+        Duration remaining = Duration.between(Instant.now(), a.expiresAt());
+        if (remaining.isNegative() || remaining.isZero()) {
+            journal.done(a.id());
+            return;
+        }
+
+        // The watcher drops the watch at its deadline; drop the journal entry with it. Scheduled first, so
+        // a watch firing right away finds it to cancel.
+        expiries.put(a.id(), deadlines.schedule(() -> forget(a), remaining));
 
         // Arm the surveillance
-        watcher.armTrigger(sig.symbol(), sig.trigger(),
-                Duration.ofMillis(1200), Duration.ofMinutes(15), evt -> {
-                    try {
-                        // Check the spread for example before entering.
-                        var q = alpaca.getLastQuote(evt.symbol());
-                        BigDecimal ask = q.ask;
-                        BigDecimal bid = q.bid;
-                        int spreadBps = bid != null && ask != null && ask.signum() > 0
-                                ? ask.subtract(bid).divide(ask, 6, RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(10000)).intValue()
-                                : 0;
-
-                        // If your barriers prevent entry
-                        // if (spreadBps > MAX_SPREAD_BPS) { audit.record(evt.symbol(), "SKIPPED", "Spread too wide: " + spreadBps + "bps"); return; }
-
-                        // Execute a purchase (executable limit)
-                        BigDecimal limit = evt.trigger().multiply(BigDecimal.valueOf(1.002)); // مثال انزلاق 0.2%
-                        var buyResp = alpaca.placeMarketableLimitBuy(evt.symbol(), qty, limit, extendedHours);
-                        String buyOrderId = buyResp.path("id").asText("");
-
-                        // Extract the average execution price
-                        BigDecimal execPrice = alpaca.getOrderAvgFillPrice(buyOrderId);
-                        if (execPrice == null) execPrice = evt.lastPrice();
-
-                        // B - Execution log
-                        audit.record(evt.symbol(), "ENTRY_FILLED",
-                                "Bought " + qty + " @ " + execPrice, buyOrderId, buyResp.toString());
-
-                        // Calculate TP and SL
-                        BigDecimal tp = AlpacaClient.computeTP(execPrice, tpPercent);
-                        BigDecimal sl = sig.stop();
-
-                        // Put OCO
-                        var ocoResp = alpaca.placeOCO(evt.symbol(), qty, tp, sl);
-
-                        // C-OCO record
-                        String parentId = ocoResp.path("id").asText("");
-                        audit.record(evt.symbol(), "OCO_PLACED",
-                                "TP=" + tp + ", SL=" + sl, parentId, ocoResp.toString());
-
-                        // Lock Up monitoring is done at your usual location then use D
-                    } catch (Exception e) {
-                        audit.record(evt.symbol(), "ERROR", "Execution failed: " + e.getMessage());
+        var arm = watcher.armTrigger(sig.symbol(), sig.trigger(), sig.triggerType(),
+                WATCH_POLL, remaining, evt -> {
+                    // Fired: never re-armed after a restart, whatever happens to the order
+                    forget(a);
+                    execute(a, evt);
+                });
+        if (a.sourceKey() != null) {
+            Tracked t = new Tracked(a.id(), arm, sig);
+            bySource.put(a.sourceKey(), t);
+            if (!arm.isActive()) bySource.remove(a.sourceKey(), t); // fired before it was tracked
+        }
+    }
+
+    // One triggered execution: pre-trade -> submit -> await fill -> protect, each step on its own bounded
+    // stage. The callback only starts the chain, so a slow fill confirmation never holds back a new crossing.
+    private void execute(TriggerJournal.Armed a, PriceWatcherService.TriggerEvent evt) {
+        Execution x = new Execution(evt.symbol());
+        // Regular session: entry, TP and SL go out together (one round trip to full protection)
+        boolean bracket = props.isBracketEntries() && regularSession.test(evt.crossedAt());
+        BigDecimal bracketTp = bracket
+                ? AlpacaClient.computeTP(FixedPrice.toBigDecimal(evt.trigger()), a.tpPercent()) : null;
+
+        run(TradeStage.PRE_TRADE, x, () -> preTrade(a, evt))
+                .thenApply(limit -> {
+                    // Only a pre-trade result its stage accepted holds exposure; one that finished late holds none
+                    RiskEngine.Rejection rejection = risk.reserve(x.symbol, a.qty(), evt.trigger());
+                    if (rejection != null) throw new RiskEngine.RejectedException(rejection);
+                    x.reserved = a.qty();
+                    return limit;
+                })
+                .thenCompose(limit -> run(TradeStage.SUBMIT, x, () -> submitEntry(a, evt, limit, bracket, bracketTp)))
+                .thenCompose(e -> {
+                    x.orderId = e.buyOrderId();
+                    return run(TradeStage.AWAIT_FILL, x, () -> awaitFill(e)).thenCompose(fill -> {
+                        // The reservation ends here: what filled moves into the account book
+                        if (fill == null) {
+                            risk.release(x.symbol, x.reserved);
+                        } else {
+                            BigDecimal px = fill.avgPrice() != null ? fill.avgPrice() : e.lastPrice();
+                            risk.onFill(x.symbol, x.reserved, fill.qty(), FixedPrice.of(px));
+                        }
+                        x.reserved = 0;
+                        return fill == null
+                                ? CompletableFuture.<Void>completedFuture(null)
+                                : run(TradeStage.PROTECT, x, () -> protect(e, fill));
+                    });
+                })
+                .whenComplete((v, ex) -> {
+                    if (ex == null) {
+                        log.info("⏱️ {} executed in {} ms {}", x.symbol, x.elapsedMillis(), x.stageMillis);
+                        return;
                     }
+                    // Failed before the fill was known: nothing is held for it
+                    risk.release(x.symbol, x.reserved);
+                    x.reserved = 0;
+                    Throwable cause = AlpacaClient.unwrap(ex);
+                    if (cause instanceof RiskEngine.RejectedException) {
+                        audit.record(x.symbol, "REJECTED", "Pre-trade guard " + cause.getMessage());
+                    } else if (cause instanceof ExecutionStage.FullException) {
+                        audit.record(x.symbol, "REJECTED", "Execution backlog full: " + cause.getMessage(), x.orderId);
+                    } else {
+                        audit.record(x.symbol, "ERROR", "Execution failed at " + x.stage + ": " + cause.getMessage(), x.orderId);
+                    }
+                    // The entry order may be live at Alpaca with nobody watching it (a SUBMIT that never started has none)
+                    if (x.stage == TradeStage.AWAIT_FILL
+                            || x.stage == TradeStage.SUBMIT && !(cause instanceof ExecutionStage.FullException)) {
+                        reconcile(a, evt, x, bracketTp, 0);
+                    }
+                });
+    }
+
+    // Runs one step on its stage and keeps its time (queue wait included)
+    private <T> CompletableFuture<T> run(TradeStage stage, Execution x, Supplier<CompletableFuture<T>> step) {
+        x.stage = stage;
+        long queued = System.nanoTime();
+        return pipeline.stage(stage).submit(step).whenComplete((v, t) ->
+                x.stageMillis.put(stage, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queued)));
+    }
+
+    // Pre-trade: every risk guard on a fresh snapshot (or the quote the crossing came with when volume is not
+    // guarded); completes with the entry limit price (FixedPrice), or fails with RiskEngine.RejectedException.
+    // Nothing is reserved here: the stage may already have given up on it.
+    private CompletableFuture<Long> preTrade(TriggerJournal.Armed a, PriceWatcherService.TriggerEvent evt) {
+        CompletableFuture<AlpacaClient.Snapshot> snapshot;
+        if (risk.needsVolume()) {
+            snapshot = alpaca.getSnapshotAsync(evt.symbol());
+        } else {
+            var quote = evt.quote() != null
+                    ? CompletableFuture.completedFuture(evt.quote())
+                    : marketData.lastQuote(evt.symbol());
+            snapshot = quote.thenApply(q -> new AlpacaClient.Snapshot(evt.lastPrice(), q.bid, q.ask, -1));
+        }
+        return snapshot.thenApply(snap -> {
+            RiskEngine.Rejection rejection = risk.check(evt.symbol(), a.qty(), evt.trigger(), snap);
+            if (rejection != null) throw new RiskEngine.RejectedException(rejection);
+            return risk.limitPrice(evt.trigger());
+        });
+    }
+
+    private CompletableFuture<Entry> submitEntry(TriggerJournal.Armed a, PriceWatcherService.TriggerEvent evt,
+                                                 long limitPrice, boolean bracket, BigDecimal bracketTp) {
+        TradeSignal sig = a.signal();
+        // Execute a purchase (executable limit, trigger + allowed slippage)
+        BigDecimal limit = FixedPrice.toBigDecimal(limitPrice);
+        // Stable client order id: a retried submission can never open a second position.
+        // Retries stop once the order timeout after the crossing has passed.
+        String clientOrderId = "buy-" + a.id();
+        Instant submitBy = evt.crossedAt().plusSeconds(props.getOrderTimeoutSec());
+        var placed = bracket
+                // TP from the trigger for now, re-priced from the real fill later
+                ? alpaca.placeBracketBuyAsync(evt.symbol(), a.qty(), limit, bracketTp, sig.stop(), clientOrderId, submitBy)
+                : alpaca.placeMarketableLimitBuyAsync(evt.symbol(), a.qty(), limit, a.extendedHours(), clientOrderId, submitBy);
+        return placed.thenApply(buyResp -> new Entry(a.id(), evt.symbol(), a.qty(), buyResp.path("id").asText(""), buyResp,
+                FixedPrice.toBigDecimal(evt.lastPrice()), sig.trigger(), a.tpPercent(), sig.stop(),
+                Instant.now().plusSeconds(props.getOrderTimeoutSec()),
+                bracketTp, bracket ? AlpacaClient.takeProfitLegId(buyResp) : null));
+    }
+
+    // An entry its stage gave up on, found by its client order id: what is left of it is cancelled, then
+    // whatever filled is protected like any other fill. Lookup, cancel and read are retried until they go through.
+    private void reconcile(TriggerJournal.Armed a, PriceWatcherService.TriggerEvent evt, Execution x,
+                           BigDecimal bracketTp, int attempt) {
+        String clientOrderId = "buy-" + a.id();
+        alpaca.findOrderByClientIdAsync(clientOrderId).thenCompose(order -> {
+            if (order == null) {
+                audit.record(x.symbol, "RECONCILED", "No order " + clientOrderId + " at Alpaca, nothing to settle");
+                return CompletableFuture.completedFuture(null);
+            }
+            String orderId = order.path("id").asText("");
+            // The fill checks of a timed out wait stop here
+            FillWait w = fillWaits.remove(orderId);
+            if (w != null) w.done().cancel(false);
+            return alpaca.getOrderStatusAsync(orderId)
+                    .thenCompose(st -> st.isDone()
+                            ? CompletableFuture.completedFuture(st)
+                            : alpaca.cancelOrderAsync(orderId).thenCompose(v -> alpaca.getOrderStatusAsync(orderId)))
+                    .thenAccept(fin -> settled(a, evt, x, bracketTp, order, fin));
+        }).exceptionally(ex -> {
+            Throwable cause = AlpacaClient.unwrap(ex);
+            if (attempt + 1 < RECONCILE_ATTEMPTS) {
+                log.warn("⚠️ {} entry {} not settled yet ({}), retrying", x.symbol, clientOrderId, cause.getMessage());
+                deadlines.schedule(() -> reconcile(a, evt, x, bracketTp, attempt + 1), RECONCILE_RETRY);
+            } else {
+                audit.record(x.symbol, "ERROR", "Entry " + clientOrderId + " could not be settled, check it at Alpaca: "
+                        + cause.getMessage(), x.orderId);
+            }
+            return null;
+        });
+    }
+
+    // Runs once per reconciled entry: the fill goes into the book and gets its TP/SL
+    private void settled(TriggerJournal.Armed a, PriceWatcherService.TriggerEvent evt, Execution x,
+                         BigDecimal bracketTp, JsonNode order, AlpacaClient.OrderStatus fin) {
+        String orderId = order.path("id").asText("");
+        if (fin.filledQty() <= 0) {
+            audit.record(x.symbol, "RECONCILED", "Entry left unfilled (status=" + fin.status() + ")", orderId);
+            return;
+        }
+        BigDecimal lastPrice = FixedPrice.toBigDecimal(evt.lastPrice());
+        risk.onFill(x.symbol, 0, fin.filledQty(), FixedPrice.of(fin.avgFillPrice() != null ? fin.avgFillPrice() : lastPrice));
+        audit.record(x.symbol, "RECONCILED", "Protecting " + fin.filledQty() + " share(s) filled after " + x.stage
+                + " gave up (status=" + fin.status() + ")", orderId);
+        TradeSignal sig = a.signal();
+        Entry e = new Entry(a.id(), x.symbol, a.qty(), orderId, order, lastPrice, sig.trigger(), a.tpPercent(), sig.stop(),
+                Instant.now(), bracketTp, bracketTp != null ? AlpacaClient.takeProfitLegId(order) : null);
+        run(TradeStage.PROTECT, x, () -> protect(e, new Fill(fin.filledQty(), fin.avgFillPrice(), !fin.isFilled())))
+                .exceptionally(ex -> {
+                    audit.record(x.symbol, "ERROR", "Protecting the reconciled entry failed: "
+                            + AlpacaClient.unwrap(ex).getMessage(), orderId);
+                    return null;
                 });
     }
+
+    private void forget(TriggerJournal.Armed a) {
+        if (a.sourceKey() != null) bySource.computeIfPresent(a.sourceKey(), (k, t) -> t.journalId().equals(a.id()) ? null : t);
+        retire(a.id());
+    }
+
+    private void retire(String journalId) {
+        HashedTimingWheel.Timeout expiry = expiries.remove(journalId);
+        if (expiry != null) expiry.cancel();
+        journal.done(journalId);
+    }
+
+    // An entry order waiting for its fill; bracketTp is null for a plain buy (protected by an OCO after the fill)
+    private record Entry(String armId, String symbol, int qty, String buyOrderId, JsonNode buyResp, BigDecimal lastPrice,
+                         BigDecimal trigger, BigDecimal tpPercent, BigDecimal stop, Instant deadline, BigDecimal bracketTp, String tpLegId) {}
+
+    // entryCancelled: the rest of the entry was cancelled at the order timeout
+    private record Fill(int qty, BigDecimal avgPrice, boolean entryCancelled) {}
+
+    // Progress of one execution, for its error record and timing log
+    private static final class Execution {
+        final String symbol;
+        final long startedAt = System.nanoTime();
+        final Map<TradeStage, Long> stageMillis = Collections.synchronizedMap(new EnumMap<>(TradeStage.class));
+        volatile TradeStage stage;
+        volatile String orderId;
+        volatile int reserved; // shares held against the risk limits until the fill is known
+
+        Execution(String symbol) { this.symbol = symbol; }
+
+        long elapsedMillis() { return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt); }
+    }
+
+    // trade_records bookkeeping runs off the execution path, in order, and never fails an execution
+    private void trackTrade(Runnable update) {
+        recordWriter.execute(() -> {
+            try {
+                update.run();
+            } catch (RuntimeException ex) {
+                log.warn("⚠️ Trade record not updated: {}", ex.getMessage());
+            }
+        });
+    }
+
+    void regularSession(Predicate<Instant> rule) {
+        this.regularSession = rule;
+    }
+
+    // Bracket orders are regular-hours only (Mon-Fri 09:30-16:00 New York; holidays are left to Alpaca)
+    private static boolean isRegularSession(Instant at) {
+        ZonedDateTime ny = at.atZone(NEW_YORK);
+        if (ny.getDayOfWeek() == DayOfWeek.SATURDAY || ny.getDayOfWeek() == DayOfWeek.SUNDAY) return false;
+        LocalTime t = ny.toLocalTime();
+        return !t.isBefore(MARKET_OPEN) && t.isBefore(MARKET_CLOSE);
+    }
+
+    // Fill check on the timing wheel (no thread is parked meanwhile): completes with the fill,
+    // or null when nothing filled by the order timeout (the rest is cancelled then)
+    private CompletableFuture<Fill> awaitFill(Entry e) {
+        // A marketable limit often fills on arrival: the submission response already says so
+        JsonNode r = e.buyResp();
+        if ("filled".equals(r.path("status").asText())) {
+            // No average in the response (missing, null or blank): protect() falls back to the last price
+            JsonNode avgNode = r.path("filled_avg_price");
+            BigDecimal avg = avgNode.isMissingNode() || avgNode.isNull() || avgNode.asText().isBlank()
+                    ? null : new BigDecimal(avgNode.asText());
+            return CompletableFuture.completedFuture(new Fill(r.path("filled_qty").asInt(e.qty()), avg, false));
+        }
+        CompletableFuture<Fill> done = new CompletableFuture<>();
+        fillWaits.put(e.buyOrderId(), new FillWait(e, done));
+        done.whenComplete((f, t) -> fillWaits.remove(e.buyOrderId()));
+        // First check at the short interval anyway: a push that raced this registration is not lost
+        deadlines.schedule(() -> checkFill(e, done), FILL_CHECK_EVERY);
+        return done;
+    }
+
+    // Fallback cadence while pushes arrive, never past the order timeout
+    private Duration nextFillCheck(Entry e) {
+        if (!pushLive.getAsBoolean()) return FILL_CHECK_EVERY;
+        Duration left = Duration.between(Instant.now(), e.deadline());
+        if (left.compareTo(FILL_CHECK_EVERY) < 0) return FILL_CHECK_EVERY;
+        return left.compareTo(FILL_RECONCILE_EVERY) < 0 ? left : FILL_RECONCILE_EVERY;
+    }
+
+    // Before the order timeout: read the status until it fills. From then on: cancel and read again until both
+    // went through, so a failed call never leaves the entry working unwatched.
+    private void checkFill(Entry e, CompletableFuture<Fill> done) {
+        if (done.isDone()) return;
+        alpaca.getOrderStatusAsync(e.buyOrderId()).thenCompose(st -> {
+            if (st.isFilled()) {
+                done.complete(new Fill(st.filledQty(), st.avgFillPrice(), false));
+                return CompletableFuture.completedFuture(null);
+            }
+            if (!st.isDone() && Instant.now().isBefore(e.deadline())) {
+                deadlines.schedule(() -> checkFill(e, done), nextFillCheck(e));
+                return CompletableFuture.completedFuture(null);
+            }
+            // Order timeout: cancel, then re-read in case it filled meanwhile
+            var last = st.isDone()
+                    ? CompletableFuture.completedFuture(st)
+                    : alpaca.cancelOrderAsync(e.buyOrderId()).thenCompose(v -> alpaca.getOrderStatusAsync(e.buyOrderId()));
+            return last.thenAccept(fin -> {
+                if (fin.filledQty() > 0) {
+                    done.complete(new Fill(fin.filledQty(), fin.avgFillPrice(), !fin.isFilled()));
+                    return;
+                }
+                audit.record(e.symbol(), "ENTRY_TIMEOUT",
+                        "Not filled within " + props.getOrderTimeoutSec() + "s (status=" + fin.status() + ")", e.buyOrderId());
+                done.complete(null);
+            });
+        }).exceptionally(ex -> {
+            if (done.isDone()) return null;
+            log.warn("⚠️ Fill check of {} {} failed ({}), retrying", e.symbol(), e.buyOrderId(),
+                    AlpacaClient.unwrap(ex).getMessage());
+            deadlines.schedule(() -> checkFill(e, done), FILL_RETRY_EVERY);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> protect(Entry e, Fill fill) {
+        int filledQty = fill.qty();
+        // Extract the average execution price
+        BigDecimal execPrice = fill.avgPrice() != null ? fill.avgPrice() : e.lastPrice();
+
+        // B - Execution log
+        audit.record(e.symbol(), "ENTRY_FILLED",
+                "Bought " + filledQty + " @ " + execPrice, e.buyOrderId(), e.buyResp().toString());
+        trackTrade(() -> records.recordEntry(e.symbol(), e.trigger(), e.stop(), execPrice, filledQty, e.buyOrderId()));
+
+        // Calculate TP and SL
+        BigDecimal tp = AlpacaClient.computeTP(execPrice, e.tpPercent());
+        BigDecimal sl = e.stop();
+
+        if (e.bracketTp() != null && e.tpLegId() != null) {
+            if (!fill.entryCancelled()) return repriceTakeProfit(e, tp);
+            // A cancelled parent may take its exit legs with it: fall back to an OCO when they are gone
+            return alpaca.getOrderStatusAsync(e.tpLegId()).thenCompose(leg ->
+                    leg.isDone() ? placeOco(e, filledQty, tp, sl) : repriceTakeProfit(e, tp));
+        }
+        return placeOco(e, filledQty, tp, sl);
+    }
+
+    // The bracket already protects the position; only move its TP when the fill moved it
+    private CompletableFuture<Void> repriceTakeProfit(Entry e, BigDecimal tp) {
+        BigDecimal planned = AlpacaClient.normalizePrice(e.bracketTp());
+        trackTrade(() -> records.recordExitOrders(e.buyOrderId(), AlpacaClient.legIds(e.buyResp())));
+        if (AlpacaClient.normalizePrice(tp).compareTo(planned) == 0) {
+            audit.record(e.symbol(), "BRACKET_ACTIVE", "TP=" + planned + ", SL=" + e.stop(), e.tpLegId());
+            return CompletableFuture.completedFuture(null);
+        }
+        return alpaca.replaceOrderLimitAsync(e.tpLegId(), tp).thenAccept(r -> {
+            audit.record(e.symbol(), "TP_REPRICED", "TP " + planned + " → " + AlpacaClient.normalizePrice(tp)
+                    + ", SL=" + e.stop(), r.path("id").asText(""), r.toString());
+            // The replacing order has an id of its own
+            trackTrade(() -> records.recordExitOrders(e.buyOrderId(), List.of(r.path("id").asText(""))));
+        }).exceptionally(ex -> {
+            // Still protected, at the TP planned from the trigger
+            audit.record(e.symbol(), "ERROR", "TP re-price failed (stays at " + planned + "): "
+                    + AlpacaClient.unwrap(ex).getMessage(), e.tpLegId());
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> placeOco(Entry e, int filledQty, BigDecimal tp, BigDecimal sl) {
+        // Put OCO
+        return alpaca.placeOCOAsync(e.symbol(), filledQty, tp, sl, "oco-" + e.armId(), null).thenAccept(ocoResp -> {
+            // C-OCO record
+            String parentId = ocoResp.path("id").asText("");
+            audit.record(e.symbol(), "OCO_PLACED",
+                    "TP=" + tp + ", SL=" + sl, parentId, ocoResp.toString());
+            List<String> exitIds = new ArrayList<>(AlpacaClient.legIds(ocoResp));
+            exitIds.add(parentId);
+            trackTrade(() -> records.recordExitOrders(e.buyOrderId(), exitIds));
+
+            // Lock Up monitoring is done at your usual location then use D
+        });
+    }
 }
@@ -1,32 +1,65 @@
 package com.mod98.alpaca.tradingbot.Service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.mod98.alpaca.tradingbot.Model.PollCursor;
+import com.mod98.alpaca.tradingbot.Repository.PollCursorRepository;
 import jakarta.annotation.PreDestroy;
-import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
 
-
+// Records exits as soon as the trade-updates stream pushes the sell fill; Alpaca's fill activities, read
+// incrementally from a persisted cursor, catch whatever the stream missed. Each poll asks only for fills
+// after the last one processed (paged by activity id), so its cost does not grow with uptime. The cursor never
+// passes a completing sell fill that is not recorded yet: it is read again by the next polls, and after a restart.
 @Service
 public class TradeExitHandlerService {
 
     private static final Logger log = LoggerFactory.getLogger(TradeExitHandlerService.class);
 
+    private static final String CURSOR = "exit_fills";
+
     private final AlpacaClient alpaca;
     private final TradeRecordService records;
+    private final AccountBook book;
+    private final PollCursorRepository cursors;
+    private final TradeAuditService audit;
     private final ScheduledExecutorService scheduler;
-    private final ConcurrentMap<String, Boolean> seen = new ConcurrentHashMap<>();
 
-    private static final int LOOKBACK_MINUTES = 60;
-
-    public TradeExitHandlerService(AlpacaClient alpaca, TradeRecordService records) {
+    // Sell orders whose exit is recorded, oldest first; only touched by the watcher thread
+    private final Map<String, Long> recent = new LinkedHashMap<>();
+    // Failed attempts of the completing sell fills not recorded yet, by order id; watcher thread only
+    private final Map<String, Integer> failed = new HashMap<>();
+    private PollCursor cursor;
+    private volatile BooleanSupplier pushLive = () -> false;
+    private long lastPollAt;
+
+    private static final int LOOKBACK_MINUTES = 60;          // first run without a stored cursor
+    private static final long OVERLAP_SECONDS = 30;          // re-read window for fills that show up late
+    private static final long DEDUP_WINDOW_MS = 15 * 60_000; // must outlast the overlap
+    private static final int DEDUP_MAX = 10_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_PAGES = 20;                 // per poll; the rest is picked up by the next one
+    private static final long RECONCILE_EVERY_MS = 60_000;   // poll cadence while the stream pushes exits
+    private static final int FILL_ATTEMPTS = 10;             // per failing fill, one per poll, then it is given up
+    private static final int UNMATCHED_ATTEMPTS = 3;         // per fill of no open trade (its entry may be committing)
+
+    public TradeExitHandlerService(AlpacaClient alpaca, TradeRecordService records, AccountBook book,
+                                   PollCursorRepository cursors, TradeAuditService audit) {
         this.alpaca = alpaca;
         this.records = records;
+        this.book = book;
+        this.cursors = cursors;
+        this.audit = audit;
         this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "TradeExitWatcher");
             t.setDaemon(true);
@@ -36,44 +69,159 @@ public TradeExitHandlerService(AlpacaClient alpaca, TradeRecordService records)
     }
 
     private void start() {
-        scheduler.scheduleAtFixedRate(this::pollClosedSellOrders, 5, 10, TimeUnit.SECONDS);
-        log.info("📊 TradeExitHandlerService started (poll 10s, lookback={}m)", LOOKBACK_MINUTES);
+        scheduler.scheduleWithFixedDelay(this::pollExitFills, 5, 10, TimeUnit.SECONDS);
+        log.info("📊 TradeExitHandlerService started (poll 10s, fills after the '{}' cursor)", CURSOR);
     }
 
-    private void pollClosedSellOrders() {
-        try {
-            Instant since = Instant.now().minusSeconds(LOOKBACK_MINUTES * 60L);
-            JsonNode arr = alpaca.listOrders("closed", "sell", since, 100);
-            if (arr == null || !arr.isArray()) return;
-
-            for (JsonNode ord : arr) {
-                String id = ord.path("id").asText(null);
-                if (id == null || id.isBlank() || seen.putIfAbsent(id, true) != null) continue;
-
-                String symbol = ord.path("symbol").asText(null);
-                String type = ord.path("type").asText("").toLowerCase();         // limit / stop
-                String side = ord.path("side").asText("").toLowerCase();         // sell
-                String filledAvg = ord.path("filled_avg_price").asText("");
-                if (!"sell".equals(side) || symbol == null || symbol.isBlank() || filledAvg.isBlank()) continue;
-
-                BigDecimal exitPrice;
-                try { exitPrice = new BigDecimal(filledAvg); } catch (Exception e) { continue; }
-
-                String reason = switch (type) {
-                    case "limit" -> "TP";
-                    case "stop", "stop_limit", "stop_limit_order" -> "SL";
-                    default -> "TP";
-                };
-
-                records.recordExit(symbol, exitPrice, reason);
-                log.info("✅ Exit recorded from Alpaca: {} {} @ {} (orderId={})", symbol, reason, exitPrice, id);
+    // live: whether exits are being pushed right now (the polls then only reconcile)
+    public void pushedBy(BooleanSupplier live) {
+        this.pushLive = live;
+    }
+
+    // Pushed by the trade-updates stream: recorded on the watcher thread, a few ms after the fill
+    public void onTradeUpdate(TradeUpdatesStream.TradeUpdate u) {
+        AlpacaClient.OrderSummary ord = u.order();
+        if (!u.isFill() || !"sell".equals(ord.side())) return;
+        scheduler.execute(() -> {
+            try {
+                // No trade for it yet (its entry may still be committing): the next poll reads the fill again
+                if (!recordExit(ord, null)) lastPollAt = 0;
+            } catch (Exception e) {
+                log.error("Pushed exit of {} not recorded: {}", ord.id(), e.getMessage(), e);
             }
+        });
+    }
 
+    private void pollExitFills() {
+        long now = System.currentTimeMillis();
+        if (pushLive.getAsBoolean() && now - lastPollAt < RECONCILE_EVERY_MS) return;
+        lastPollAt = now;
+        try {
+            if (cursor == null) cursor = loadCursor();
+            Instant after = cursor.getLastTime().minusSeconds(OVERLAP_SECONDS);
+            String pageToken = null;
+            // Set by the first fill not recorded: later fills are still handled, the cursor stays before it
+            boolean held = false;
+            for (int page = 0; page < MAX_PAGES; page++) {
+                List<AlpacaClient.FillActivity> fills = alpaca.getFillActivitiesAsync(after, pageToken, PAGE_SIZE).join();
+                for (AlpacaClient.FillActivity fill : fills) {
+                    if (!handle(fill)) held = true;
+                    if (!held) advance(fill);
+                }
+                if (!fills.isEmpty()) {
+                    pageToken = fills.get(fills.size() - 1).id();
+                    cursors.save(cursor);
+                }
+                if (fills.size() < PAGE_SIZE) break;
+            }
+            evictRecent();
+        } catch (CompletionException e) {
+            Throwable cause = AlpacaClient.unwrap(e);
+            if (cause instanceof AlpacaRateLimiter.ShedException || cause instanceof CircuitBreaker.OpenException) {
+                log.debug("Exit poll skipped: {}", cause.getMessage());
+            } else {
+                log.error("Exit poll failed: {}", cause.getMessage(), cause);
+            }
         } catch (Exception e) {
             log.error("Exit poll failed: {}", e.getMessage(), e);
         }
     }
 
+    // false: a completing sell fill that is not recorded yet (the cursor must not pass it)
+    private boolean handle(AlpacaClient.FillActivity fill) {
+        // Only the fill that completes a sell order closes the trade; partial fills are followed by it
+        if (!"sell".equals(fill.side()) || fill.leavesQty() != 0 || fill.orderId() == null
+                || recent.containsKey(fill.orderId())) return true;
+        String orderId = fill.orderId();
+        boolean unmatched;
+        String error;
+        try {
+            if (recordExit(alpaca.getOrderSummaryAsync(orderId).join(), fill.price())) {
+                failed.remove(orderId);
+                return true;
+            }
+            unmatched = true;
+            error = "no open trade matches it";
+        } catch (RuntimeException e) {
+            unmatched = false;
+            error = AlpacaClient.unwrap(e).getMessage();
+        }
+        // Isolated: later fills are still recorded, this one is read again by the next polls
+        int attempts = failed.merge(orderId, 1, Integer::sum);
+        if (attempts < (unmatched ? UNMATCHED_ATTEMPTS : FILL_ATTEMPTS)) {
+            log.warn("⚠️ Exit fill {} ({} {}) not recorded, retrying next poll: {}", fill.id(), fill.symbol(),
+                    orderId, error);
+            return false;
+        }
+        failed.remove(orderId);
+        recent.put(orderId, System.currentTimeMillis());
+        if (unmatched) {
+            // Not a trade of the bot (e.g. a manual sell); the book follows it at its next reconcile
+            log.warn("Exit fill {} ({} {}) matches no open trade, given up", fill.id(), fill.symbol(), orderId);
+            audit.record(fill.symbol(), "EXIT_UNMATCHED", "Sell fill matches no open trade", orderId);
+        } else {
+            log.error("Exit fill {} ({} {}) given up after {} attempts: {}", fill.id(), fill.symbol(), orderId,
+                    attempts, error);
+            audit.record(fill.symbol(), "ERROR", "Exit fill not recorded after " + attempts + " attempts: " + error,
+                    orderId);
+        }
+        return true;
+    }
+
+    private void advance(AlpacaClient.FillActivity fill) {
+        if (fill.transactionTime() != null && fill.transactionTime().isAfter(cursor.getLastTime())) {
+            cursor.setLastTime(fill.transactionTime());
+            cursor.setLastId(fill.id());
+        }
+    }
+
+    // Once per sell order, whichever source reports it first; fallbackPrice when the order has no average yet.
+    // false: no open trade matches it (yet), so it is not marked as seen.
+    private boolean recordExit(AlpacaClient.OrderSummary ord, BigDecimal fallbackPrice) {
+        String id = ord.id();
+        String symbol = ord.symbol();
+        BigDecimal exitPrice = ord.filledAvgPrice() != null ? ord.filledAvgPrice() : fallbackPrice;
+        if (id == null || recent.containsKey(id) || symbol == null || symbol.isBlank() || exitPrice == null) return true;
+
+        String reason = switch (ord.type()) {
+            case "limit" -> "TP";
+            case "stop", "stop_limit", "stop_limit_order" -> "SL";
+            default -> "TP";
+        };
+
+        // A fill replayed after a restart (cursor overlap) closed its trade before: the seeded book has it already.
+        // Neither that nor an order of no trade moves the book; its reconcile catches up with those.
+        TradeRecordService.ExitResult result = records.recordExit(id, symbol, exitPrice, reason);
+        if (result == TradeRecordService.ExitResult.NO_TRADE) return false;
+        recent.put(id, System.currentTimeMillis());
+        if (result == TradeRecordService.ExitResult.RECORDED) {
+            book.onExit(symbol, ord.filledQty(), FixedPrice.of(exitPrice));
+            log.info("✅ Exit recorded from Alpaca: {} {} @ {} (orderId={})", symbol, reason, exitPrice, id);
+        }
+        return true;
+    }
+
+    private PollCursor loadCursor() {
+        return cursors.findById(CURSOR).orElseGet(() -> {
+            PollCursor c = new PollCursor();
+            c.setName(CURSOR);
+            c.setLastTime(Instant.now().minusSeconds(LOOKBACK_MINUTES * 60L));
+            log.info("📊 No '{}' cursor yet, reading fills from the last {}m", CURSOR, LOOKBACK_MINUTES);
+            return c;
+        });
+    }
+
+    // Drop orders older than the dedup window (the overlap never reaches that far back), capped in size
+    private void evictRecent() {
+        long cutoff = System.currentTimeMillis() - DEDUP_WINDOW_MS;
+        Iterator<Long> it = recent.values().iterator();
+        while (it.hasNext()) {
+            long seenAt = it.next();
+            if (seenAt >= cutoff && recent.size() <= DEDUP_MAX) break;
+            it.remove();
+        }
+    }
+
     @PreDestroy
     public void shutdown() {
         log.info("Stopping TradeExitHandlerService...");
@@ -9,9 +9,16 @@ public class TradeLogic {
 
     private final BigDecimal budgetUSD;
     private final BigDecimal takeProfitPct;
+    private final boolean capped; // budget cut to the buying power: never round the qty up past it
 
     public TradeLogic(BigDecimal budgetUSD, BigDecimal takeProfitPct) {
-        this.budgetUSD = budgetUSD;
+        this(budgetUSD, takeProfitPct, null);
+    }
+
+    // buyingPowerUSD from the AccountBook, null when not known yet
+    public TradeLogic(BigDecimal budgetUSD, BigDecimal takeProfitPct, BigDecimal buyingPowerUSD) {
+        this.capped = buyingPowerUSD != null && buyingPowerUSD.compareTo(budgetUSD) < 0;
+        this.budgetUSD = capped ? buyingPowerUSD.max(BigDecimal.ZERO) : budgetUSD;
         this.takeProfitPct = takeProfitPct;
     }
 
@@ -20,7 +27,7 @@ public record Plan(int qty, BigDecimal tp, BigDecimal sl) {}
     public Plan buildPlan(TradeSignal s) {
         int qty = budgetUSD
                 .divide(s.trigger(), 10, RoundingMode.HALF_UP)
-                .setScale(0, RoundingMode.CEILING)
+                .setScale(0, capped ? RoundingMode.FLOOR : RoundingMode.CEILING)
                 .intValue();
 
         BigDecimal tp = s.trigger()
@@ -1,6 +1,7 @@
 package com.mod98.alpaca.tradingbot.Service;
 
 import com.mod98.alpaca.tradingbot.Model.TradeRecord;
+import jakarta.annotation.PostConstruct;
 import jakarta.persistence.*;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -8,9 +9,16 @@
 import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.Optional;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+// Open trades are found through an in-memory index (rebuilt from the table at startup, updated after each
+// commit), then loaded by primary key: no query on symbol per entry or exit.
 @RequiredArgsConstructor
 @Service
 public class TradeRecordService {
@@ -20,6 +28,16 @@ public class TradeRecordService {
     @PersistenceContext
     private EntityManager em;
 
+    private final OpenTradeIndex open = new OpenTradeIndex();
+
+    @PostConstruct
+    public void loadOpen() {
+        List<TradeRecord> rows = em.createQuery("SELECT t FROM TradeRecord t WHERE t.closedAt IS NULL", TradeRecord.class)
+                .getResultList();
+        open.replaceAll(rows);
+        log.info("📂 {} open trade(s) indexed", open.size());
+    }
+
     @Transactional
     public void recordSignal(String symbol, BigDecimal trigger, BigDecimal sl) {
         TradeRecord rec = new TradeRecord();
@@ -29,44 +47,112 @@ public void recordSignal(String symbol, BigDecimal trigger, BigDecimal sl) {
         rec.setState("ARMED");
         rec.setCreatedAt(Instant.now());
         em.persist(rec);
+        indexAfterCommit(rec);
         log.info("📝 Signal recorded {} trigger={} SL={}", symbol, trigger, sl);
     }
 
     @Transactional
     public void recordEntry(String symbol, BigDecimal execPrice, int qty, String buyOrderId) {
-        findOpen(symbol).ifPresentOrElse(rec -> {
-            rec.setEntryPrice(execPrice);
-            rec.setQty(qty);
-            rec.setBuyOrderId(buyOrderId);
-            rec.setState("FILLED");
-            rec.setUpdatedAt(Instant.now());
-            em.merge(rec);
-            log.info("💰 Entry recorded {} @{} qty={}", symbol, execPrice, qty);
-        }, () -> log.warn("recordEntry: no open trade for {}", symbol));
+        recordEntry(symbol, null, null, execPrice, qty, buyOrderId);
     }
 
+    // Fills the armed row of the symbol, or opens a new one when the signal was not recorded
     @Transactional
-    public void recordExit(String symbol, BigDecimal exitPrice, String reason) {
-        findOpen(symbol).ifPresentOrElse(rec -> {
-            rec.setExitPrice(exitPrice);
-            rec.setState(reason.toUpperCase());
-            rec.setClosedAt(Instant.now());
-            em.merge(rec);
-            log.info("✅ Exit recorded {} @{} ({})", symbol, exitPrice, reason);
-        }, () -> log.warn("recordExit: no open trade for {}", symbol));
+    public void recordEntry(String symbol, BigDecimal trigger, BigDecimal sl, BigDecimal execPrice, int qty, String buyOrderId) {
+        Long id = open.armedBySymbol(symbol);
+        TradeRecord rec = id != null ? em.find(TradeRecord.class, id) : null;
+        if (rec == null) {
+            rec = new TradeRecord();
+            rec.setSymbol(symbol);
+            rec.setTrigger(trigger);
+            rec.setStopLoss(sl);
+            rec.setCreatedAt(Instant.now());
+            em.persist(rec);
+        }
+        rec.setEntryPrice(execPrice);
+        rec.setQty(qty);
+        rec.setBuyOrderId(buyOrderId);
+        rec.setState("FILLED");
+        rec.setUpdatedAt(Instant.now());
+        indexAfterCommit(rec);
+        log.info("💰 Entry recorded {} @{} qty={}", symbol, execPrice, qty);
+    }
+
+    // The orders that can close the trade opened by buyOrderId (its TP/SL legs, an OCO, a re-priced TP)
+    @Transactional
+    public void recordExitOrders(String buyOrderId, Collection<String> exitOrderIds) {
+        TradeRecord rec = find(open.byOrderId(buyOrderId));
+        if (rec == null) {
+            log.warn("recordExitOrders: no open trade for order {}", buyOrderId);
+            return;
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        if (rec.getExitOrderIds() != null && !rec.getExitOrderIds().isBlank()) ids.addAll(List.of(rec.getExitOrderIds().split(",")));
+        ids.addAll(exitOrderIds);
+        ids.remove("");
+        rec.setExitOrderIds(String.join(",", ids));
+        rec.setUpdatedAt(Instant.now());
+        indexAfterCommit(rec);
+    }
+
+    // What an exit did: closed its trade, was recorded before, or matched no open trade (maybe not yet)
+    public enum ExitResult { RECORDED, ALREADY_RECORDED, NO_TRADE }
+
+    @Transactional
+    public ExitResult recordExit(String symbol, BigDecimal exitPrice, String reason) {
+        return recordExit(null, symbol, exitPrice, reason);
+    }
+
+    // The trade the exit order belongs to. Only a trade with no exit orders on file can be matched by symbol
+    // (its oldest), and an order that already closed a trade is left alone.
+    @Transactional
+    public ExitResult recordExit(String exitOrderId, String symbol, BigDecimal exitPrice, String reason) {
+        Long id = open.byOrderId(exitOrderId);
+        if (id == null) {
+            if (exitOrderId != null && closedBy(exitOrderId)) {
+                log.info("↩️ Exit order {} of {} already recorded", exitOrderId, symbol);
+                return ExitResult.ALREADY_RECORDED;
+            }
+            id = open.unprotectedBySymbol(symbol);
+        }
+        TradeRecord rec = find(id);
+        if (rec == null) {
+            log.warn("recordExit: no open trade for {}", symbol);
+            return ExitResult.NO_TRADE;
+        }
+        rec.setExitPrice(exitPrice);
+        rec.setState(reason.toUpperCase());
+        rec.setClosedAt(Instant.now());
+        rec.setClosedByOrderId(exitOrderId);
+        indexAfterCommit(rec);
+        log.info("✅ Exit recorded {} @{} ({})", symbol, exitPrice, reason);
+        return ExitResult.RECORDED;
+    }
+
+    // Indexed (trade_records_closed_by_idx)
+    private boolean closedBy(String exitOrderId) {
+        return !em.createQuery("SELECT t.id FROM TradeRecord t WHERE t.closedByOrderId = :orderId", Long.class)
+                .setParameter("orderId", exitOrderId)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+    }
+
+    private TradeRecord find(Long id) {
+        return id == null ? null : em.find(TradeRecord.class, id);
     }
 
-    private Optional<TradeRecord> findOpen(String symbol) {
-        try {
-            TradeRecord rec = em.createQuery(
-                            "SELECT t FROM TradeRecord t WHERE t.symbol=:s AND t.closedAt IS NULL",
-                            TradeRecord.class
-                    ).setParameter("s", symbol)
-                    .setMaxResults(1)
-                    .getSingleResult();
-            return Optional.of(rec);
-        } catch (NoResultException e) {
-            return Optional.empty();
+    // The index follows the table: a rolled back change never reaches it
+    private void indexAfterCommit(TradeRecord rec) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            open.put(rec);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                open.put(rec);
+            }
+        });
     }
 }
@@ -0,0 +1,14 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+// Stages of one execution, in order. Each has its own in-flight cap, queue and timeout (ExecutionStage),
+// so a stage that is slow to finish never holds back the ones before it.
+public enum TradeStage {
+    // Fresh quote and entry checks
+    PRE_TRADE,
+    // Entry order submission
+    SUBMIT,
+    // Waiting for the entry to fill (or time out): long but cheap, no thread is held
+    AWAIT_FILL,
+    // TP/SL: OCO after a plain buy, TP re-price of a bracket
+    PROTECT
+}
@@ -0,0 +1,150 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Alpaca account stream (trade_updates): order fills, partial fills, cancels and rejects pushed as they
+// happen. Listeners get them on the stream thread and must not block; REST polling stays as their fallback
+// (listeners ask isReady() to know whether pushes are arriving).
+@Service
+@ConditionalOnProperty(prefix = "alpaca", name = "trade-stream-enabled", havingValue = "true")
+public class TradeUpdatesStream extends AlpacaStreamConnection {
+
+    // event: new, fill, partial_fill, canceled, expired, rejected, replaced, ...
+    public record TradeUpdate(String event, AlpacaClient.OrderSummary order, Instant at) {
+        public boolean isFill() { return "fill".equals(event); }
+
+        // The order will not fill any further
+        public boolean isFinal() {
+            return switch (event) {
+                case "fill", "canceled", "expired", "rejected", "done_for_day", "replaced" -> true;
+                default -> false;
+            };
+        }
+    }
+
+    public interface Listener {
+        void onTradeUpdate(TradeUpdate update);
+    }
+
+    private final String keyId;
+    private final String secretKey;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public TradeUpdatesStream(AlpacaProperties props, TradeExecutorService executor, TradeExitHandlerService exits) {
+        this(URI.create(streamUrl(props)), props.getApiKeyId(), props.getApiSecretKey());
+        addListener(executor::onTradeUpdate);
+        addListener(exits::onTradeUpdate);
+        executor.pushedBy(this::isReady);
+        exits.pushedBy(this::isReady);
+    }
+
+    public TradeUpdatesStream(URI uri, String keyId, String secretKey) {
+        super("trade-updates", uri);
+        this.keyId = keyId;
+        this.secretKey = secretKey;
+    }
+
+    // alpaca.trade-stream-url, or the trading host's /stream (wss://paper-api.alpaca.markets/stream)
+    private static String streamUrl(AlpacaProperties props) {
+        if (props.getTradeStreamUrl() != null && !props.getTradeStreamUrl().isBlank()) return props.getTradeStreamUrl();
+        return props.getBaseUrl().replaceFirst("^http", "ws").replaceAll("/+$", "") + "/stream";
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    @PostConstruct
+    public void start() {
+        open();
+    }
+
+    @PreDestroy
+    public void stop() {
+        close();
+    }
+
+    @Override
+    protected void onConnected() {
+        send(toJson(Map.of("action", "auth", "key", keyId, "secret", secretKey)));
+    }
+
+    @Override
+    protected void onMessage(String json) throws Exception {
+        JsonNode m = mapper.readTree(json);
+        JsonNode data = m.path("data");
+        switch (m.path("stream").asText("")) {
+            case "authorization" -> {
+                if ("authorized".equals(data.path("status").asText())) {
+                    send(toJson(Map.of("action", "listen", "data", Map.of("streams", List.of("trade_updates")))));
+                } else {
+                    log.warn("Trade-updates stream not authorized: {}", data.path("status").asText());
+                }
+            }
+            case "listening" -> {
+                for (JsonNode s : data.path("streams")) {
+                    if ("trade_updates".equals(s.asText())) markReady();
+                }
+            }
+            case "trade_updates" -> {
+                TradeUpdate u = new TradeUpdate(data.path("event").asText(""), order(data.path("order")),
+                        instant(data.path("timestamp").asText(null)));
+                for (Listener l : listeners) {
+                    try {
+                        l.onTradeUpdate(u);
+                    } catch (RuntimeException e) {
+                        log.warn("Trade update {} {} not handled: {}", u.event(), u.order().id(), e.getMessage());
+                    }
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private static AlpacaClient.OrderSummary order(JsonNode o) {
+        return new AlpacaClient.OrderSummary(text(o, "id"), text(o, "client_order_id"), text(o, "symbol"),
+                o.path("side").asText("").toLowerCase(), o.path("type").asText("").toLowerCase(),
+                o.path("status").asText(""), decimal(o, "filled_qty").intValue(),
+                o.path("filled_avg_price").isNull() || o.path("filled_avg_price").isMissingNode()
+                        ? null : decimal(o, "filled_avg_price"));
+    }
+
+    private static String text(JsonNode n, String field) {
+        JsonNode v = n.path(field);
+        return v.isNull() || v.isMissingNode() ? null : v.asText();
+    }
+
+    private static BigDecimal decimal(JsonNode n, String field) {
+        String v = n.path(field).asText("");
+        return v.isBlank() ? BigDecimal.ZERO : new BigDecimal(v);
+    }
+
+    private static Instant instant(String ts) {
+        return ts == null || ts.isBlank() ? Instant.now() : OffsetDateTime.parse(ts).toInstant();
+    }
+
+    private String toJson(Object o) {
+        try {
+            return mapper.writeValueAsString(o);
+        } catch (Exception e) {
+            throw new IllegalStateException("Cannot encode stream message", e);
+        }
+    }
+}
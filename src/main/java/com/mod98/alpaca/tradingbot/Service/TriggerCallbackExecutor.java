@@ -0,0 +1,152 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs trigger callbacks (quote, buy, fill checks, OCO: all blocking HTTP) away from the poll driver.
+// At most maxConcurrent callbacks run at once; up to queueCapacity more wait, beyond that they are rejected.
+@Service
+public class TriggerCallbackExecutor implements Executor {
+
+    private static final Logger log = LoggerFactory.getLogger(TriggerCallbackExecutor.class);
+
+    private final BlockingQueue<Runnable> queue;
+    private final Semaphore permits;
+    private final ExecutorService workers;
+    private final Thread dispatcher;
+    private final boolean virtual;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private Counter rejectedCounter;
+    private Counter failedCounter;
+
+    @Autowired
+    public TriggerCallbackExecutor(AlpacaProperties props, ObjectProvider<MeterRegistry> meters) {
+        this(props.getCallbackMaxConcurrency(), props.getCallbackQueueCapacity(), props.isCallbackVirtualThreads());
+        MeterRegistry registry = meters.getIfAvailable();
+        if (registry != null) bindMetrics(registry);
+    }
+
+    public TriggerCallbackExecutor(int maxConcurrent, int queueCapacity, boolean virtualThreads) {
+        if (maxConcurrent < 1 || queueCapacity < 1) {
+            throw new IllegalStateException("Callback executor needs maxConcurrent >= 1 and queueCapacity >= 1");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.permits = new Semaphore(maxConcurrent);
+        ExecutorService vt = virtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtual = vt != null;
+        AtomicInteger seq = new AtomicInteger();
+        this.workers = vt != null ? vt : Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "TriggerCallback-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.dispatcher = new Thread(this::dispatch, "TriggerCallback-dispatch");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        log.info("⚙️ Trigger callbacks: max {} concurrent, queue {}, {} threads",
+                maxConcurrent, queueCapacity, virtual ? "virtual" : "platform");
+    }
+
+    // Never blocks the caller: a full queue rejects instead of back-pressuring the poll driver
+    @Override
+    public void execute(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        if (!queue.offer(task)) {
+            rejected.incrementAndGet();
+            if (rejectedCounter != null) rejectedCounter.increment();
+            throw new RejectedExecutionException("Trigger callback queue full (" + queue.size() + " waiting)");
+        }
+    }
+
+    public int queued() { return queue.size(); }
+
+    public int running() { return running.get(); }
+
+    public long rejected() { return rejected.get(); }
+
+    public long failed() { return failed.get(); }
+
+    public boolean isVirtual() { return virtual; }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Runnable task;
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                permits.release();
+                return;
+            }
+            try {
+                workers.execute(() -> runIsolated(task));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                return; // shutting down
+            }
+        }
+    }
+
+    // A failing callback is logged and counted; it never takes down the dispatcher or its neighbours
+    private void runIsolated(Runnable task) {
+        running.incrementAndGet();
+        try {
+            task.run();
+        } catch (Throwable t) {
+            failed.incrementAndGet();
+            if (failedCounter != null) failedCounter.increment();
+            log.error("Trigger callback failed: {}", t.getMessage(), t);
+        } finally {
+            running.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        Gauge.builder("trigger.callbacks.queued", queue, BlockingQueue::size)
+                .description("Trigger callbacks waiting for a free slot").register(registry);
+        Gauge.builder("trigger.callbacks.running", running, AtomicInteger::get)
+                .description("Trigger callbacks currently executing").register(registry);
+        rejectedCounter = Counter.builder("trigger.callbacks.rejected")
+                .description("Trigger callbacks dropped because the queue was full").register(registry);
+        failedCounter = Counter.builder("trigger.callbacks.failed")
+                .description("Trigger callbacks that threw").register(registry);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() when the runtime has it (Java 21+); the build targets 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.info("Virtual threads not available on Java {}, using platform threads for trigger callbacks",
+                    Runtime.version().feature());
+            return null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.interrupt();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,89 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Sorted trigger levels (fixed-point) of one symbol, one item per level.
+// A price check is a binary search over a long[]: nothing is allocated unless a trigger is crossed.
+// Not thread-safe; callers synchronize.
+final class TriggerIndex<T> {
+
+    private long[] levels = new long[8];
+    private Object[] items = new Object[8];
+    // Live entries are [head, tail): crossing removes a prefix by moving head
+    private int head;
+    private int tail;
+
+    int size() { return tail - head; }
+
+    boolean isEmpty() { return tail == head; }
+
+    // Adds the item, or returns the one already armed at this level
+    @SuppressWarnings("unchecked")
+    T putIfAbsent(long level, T item) {
+        int i = Arrays.binarySearch(levels, head, tail, level);
+        if (i >= 0) return (T) items[i];
+        int at = -i - 1;
+        if (head > 0 || tail == levels.length) {
+            at -= compact();
+        }
+        System.arraycopy(levels, at, levels, at + 1, tail - at);
+        System.arraycopy(items, at, items, at + 1, tail - at);
+        levels[at] = level;
+        items[at] = item;
+        tail++;
+        return null;
+    }
+
+    boolean remove(long level, T item) {
+        int i = Arrays.binarySearch(levels, head, tail, level);
+        if (i < 0 || items[i] != item) return false;
+        System.arraycopy(levels, i + 1, levels, i, tail - i - 1);
+        System.arraycopy(items, i + 1, items, i, tail - i - 1);
+        items[--tail] = null;
+        if (head == tail) head = tail = 0;
+        return true;
+    }
+
+    // Removes and returns every item with level <= price, lowest first: O(log n + k)
+    @SuppressWarnings("unchecked")
+    List<T> pollAtOrBelow(long price) {
+        if (head == tail || levels[head] > price) return List.of();
+        int i = Arrays.binarySearch(levels, head, tail, price);
+        int end = i >= 0 ? i + 1 : -i - 1;
+        List<T> out = new ArrayList<>(end - head);
+        for (int k = head; k < end; k++) {
+            out.add((T) items[k]);
+            items[k] = null;
+        }
+        head = end;
+        if (head == tail) head = tail = 0;
+        return out;
+    }
+
+    // Lowest level strictly above price, or -1 when none
+    long ceilingAbove(long price) {
+        int i = Arrays.binarySearch(levels, head, tail, price);
+        int at = i >= 0 ? i + 1 : -i - 1;
+        return at < tail ? levels[at] : -1;
+    }
+
+    // Moves live entries to index 0 (growing when full); returns how far they moved
+    private int compact() {
+        int shift = head;
+        int n = tail - head;
+        if (n == levels.length) {
+            levels = Arrays.copyOf(levels, n * 2);
+            items = Arrays.copyOf(items, n * 2);
+        }
+        if (shift > 0) {
+            System.arraycopy(levels, head, levels, 0, n);
+            System.arraycopy(items, head, items, 0, n);
+            Arrays.fill(items, n, tail, null);
+            head = 0;
+            tail = n;
+        }
+        return shift;
+    }
+}
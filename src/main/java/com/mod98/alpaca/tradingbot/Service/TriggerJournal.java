@@ -0,0 +1,241 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Parsing.TradeSignal;
+import com.mod98.alpaca.tradingbot.Parsing.TriggerType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Durable store of armed triggers: an append-only binary journal (ARM / DONE records) plus a periodic
+// snapshot of the live set. Replay = snapshot + journal; a torn record at the tail is dropped.
+@Service
+public class TriggerJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(TriggerJournal.class);
+
+    private static final byte OP_ARM = 1;
+    private static final byte OP_DONE = 2;
+    private static final long SNAPSHOT_EVERY_SEC = 60;
+    private static final String JOURNAL = "triggers.journal";
+    private static final String SNAPSHOT = "triggers.snapshot";
+
+    // An armed signal as it must be re-armed after a restart
+    public record Armed(String id, String sourceKey, TradeSignal signal, int qty, BigDecimal tpPercent,
+                        boolean extendedHours, Instant expiresAt) {}
+
+    private final Path dir;
+    private final Map<String, Armed> live = new LinkedHashMap<>(); // guarded by this
+    private FileChannel journal;                                   // guarded by this
+    private long appendedSinceSnapshot;                            // guarded by this
+    private final ScheduledExecutorService snapshotter;
+
+    public TriggerJournal(@Value("${trade.journal-dir:./sessions/journal}") String dir) {
+        this.dir = Paths.get(dir);
+        try {
+            Files.createDirectories(this.dir);
+            replay();
+            // Start a fresh journal on top of a snapshot of what was replayed
+            snapshot();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open trigger journal in " + this.dir + ": " + e.getMessage(), e);
+        }
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TriggerJournal");
+            t.setDaemon(true);
+            return t;
+        });
+        this.snapshotter.scheduleWithFixedDelay(this::snapshotIfDirty, SNAPSHOT_EVERY_SEC, SNAPSHOT_EVERY_SEC, TimeUnit.SECONDS);
+    }
+
+    // Armed triggers whose deadline has not passed yet
+    public synchronized List<Armed> live() {
+        Instant now = Instant.now();
+        List<Armed> out = new ArrayList<>();
+        for (Armed a : live.values()) {
+            if (a.expiresAt().isAfter(now)) out.add(a);
+        }
+        return out;
+    }
+
+    public synchronized void armed(Armed a) {
+        live.put(a.id(), a);
+        append(encodeArm(a));
+    }
+
+    // Fired, cancelled or expired: the trigger must not come back after a restart
+    public synchronized void done(String id) {
+        if (live.remove(id) == null) return;
+        append(encodeDone(id));
+    }
+
+    private void append(byte[] payload) {
+        try {
+            writeFrame(journal, payload);
+            journal.force(false);
+            appendedSinceSnapshot++;
+        } catch (IOException e) {
+            log.error("❌ Trigger journal write failed: {}", e.getMessage());
+        }
+    }
+
+    // ---- Snapshot ----
+    private synchronized void snapshotIfDirty() {
+        if (appendedSinceSnapshot == 0) return;
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("❌ Trigger snapshot failed: {}", e.getMessage());
+        }
+    }
+
+    // Writes the live set atomically, then truncates the journal it replaces
+    private synchronized void snapshot() throws IOException {
+        Instant now = Instant.now();
+        live.values().removeIf(a -> !a.expiresAt().isAfter(now));
+
+        Path tmp = dir.resolve(SNAPSHOT + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Armed a : live.values()) writeFrame(ch, encodeArm(a));
+            ch.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        if (journal != null) journal.close();
+        journal = FileChannel.open(dir.resolve(JOURNAL), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        appendedSinceSnapshot = 0;
+    }
+
+    // ---- Replay ----
+    private void replay() throws IOException {
+        long started = System.nanoTime();
+        int records = readFrames(dir.resolve(SNAPSHOT)) + readFrames(dir.resolve(JOURNAL));
+        log.info("📒 Trigger journal replayed: {} records, {} armed ({} ms)",
+                records, live.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private int readFrames(Path file) throws IOException {
+        if (!Files.exists(file)) return 0;
+        int n = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int len = in.readInt();
+                    int crc = in.readInt();
+                    if (len <= 0 || len > 1 << 20) break;
+                    payload = in.readNBytes(len);
+                    if (payload.length != len || crc(payload) != crc) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                apply(payload);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        if (op == OP_DONE) {
+            live.remove(in.readUTF());
+            return;
+        }
+        if (op != OP_ARM) return;
+        String id = in.readUTF();
+        String sourceKey = in.readUTF();
+        String symbol = in.readUTF();
+        BigDecimal trigger = FixedPrice.toBigDecimal(in.readLong());
+        BigDecimal stop = FixedPrice.toBigDecimal(in.readLong());
+        int targetCount = in.readUnsignedShort();
+        List<BigDecimal> targets = new ArrayList<>(targetCount);
+        for (int i = 0; i < targetCount; i++) targets.add(FixedPrice.toBigDecimal(in.readLong()));
+        int qty = in.readInt();
+        BigDecimal tpPercent = FixedPrice.toBigDecimal(in.readLong());
+        boolean extendedHours = in.readBoolean();
+        Instant expiresAt = Instant.ofEpochMilli(in.readLong());
+        // Appended field: records written before it existed are LAST triggers
+        TriggerType type = in.available() > 0 ? TriggerType.values()[in.readUnsignedByte()] : TriggerType.LAST;
+        live.put(id, new Armed(id, sourceKey.isEmpty() ? null : sourceKey,
+                new TradeSignal(symbol, trigger, stop, targets, type), qty, tpPercent, extendedHours, expiresAt));
+    }
+
+    // ---- Encoding: [len][crc32][payload] ----
+    private static byte[] encodeArm(Armed a) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            TradeSignal s = a.signal();
+            List<BigDecimal> targets = s.targets() == null ? List.of() : s.targets();
+            out.writeByte(OP_ARM);
+            out.writeUTF(a.id());
+            out.writeUTF(a.sourceKey() == null ? "" : a.sourceKey());
+            out.writeUTF(s.symbol());
+            out.writeLong(FixedPrice.of(s.trigger()));
+            out.writeLong(FixedPrice.of(s.stop()));
+            out.writeShort(targets.size());
+            for (BigDecimal t : targets) out.writeLong(FixedPrice.of(t));
+            out.writeInt(a.qty());
+            out.writeLong(FixedPrice.of(a.tpPercent()));
+            out.writeBoolean(a.extendedHours());
+            out.writeLong(a.expiresAt().toEpochMilli());
+            out.writeByte(s.triggerType() == null ? TriggerType.LAST.ordinal() : s.triggerType().ordinal());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    private static byte[] encodeDone(String id) {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(48);
+        try (DataOutputStream out = new DataOutputStream(buf)) {
+            out.writeByte(OP_DONE);
+            out.writeUTF(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buf.toByteArray();
+    }
+
+    private static void writeFrame(FileChannel ch, byte[] payload) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (frame.hasRemaining()) ch.write(frame);
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        snapshotter.shutdownNow();
+        try {
+            snapshot();
+            journal.close();
+        } catch (IOException e) {
+            log.error("❌ Trigger journal close failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Decoding recorded Alpaca responses (src/test/resources/alpaca): String + JsonNode tree vs streaming JsonParser.
+// Run main() (GC profiler on) and compare gc.alloc.rate.norm (bytes per response).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlpacaDecodeBenchmark {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private byte[] latestTrades;   // 100 symbols, /stocks/trades/latest
+    private byte[] snapshots;      // 20 symbols, /stocks/snapshots
+    private byte[] closedOrders;   // 20 OCO orders with nested legs, /v2/orders?nested=true
+
+    @Setup
+    public void setup() throws IOException {
+        latestTrades = load("latest-trades.json");
+        snapshots = load("snapshots.json");
+        closedOrders = load("closed-orders.json");
+    }
+
+    private static byte[] load(String name) throws IOException {
+        try (InputStream in = AlpacaDecodeBenchmark.class.getResourceAsStream("/alpaca/" + name)) {
+            if (in == null) throw new IllegalStateException("Missing sample payload: " + name);
+            return in.readAllBytes();
+        }
+    }
+
+    // ---- Batch latest trades (the poll path) ----
+    @Benchmark
+    public void latestTradesTree(Blackhole bh) throws IOException {
+        JsonNode root = mapper.readTree(new String(latestTrades, StandardCharsets.UTF_8));
+        var it = root.path("trades").fields();
+        while (it.hasNext()) {
+            var e = it.next();
+            JsonNode p = e.getValue().path("p");
+            if (p.isNumber()) {
+                bh.consume(e.getKey());
+                bh.consume(FixedPrice.of(p.doubleValue()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void latestTradesStreaming(Blackhole bh) {
+        AlpacaDecoders.latestTradePrices(latestTrades, (symbol, price) -> {
+            bh.consume(symbol);
+            bh.consume(price);
+        });
+    }
+
+    // ---- Snapshots ----
+    @Benchmark
+    public Map<String, AlpacaClient.Snapshot> snapshotsTree() throws IOException {
+        JsonNode root = mapper.readTree(new String(snapshots, StandardCharsets.UTF_8));
+        Map<String, AlpacaClient.Snapshot> out = new HashMap<>();
+        var it = root.fields();
+        while (it.hasNext()) {
+            var e = it.next();
+            JsonNode s = e.getValue();
+            JsonNode q = s.path("latestQuote");
+            out.put(e.getKey(), new AlpacaClient.Snapshot(
+                    FixedPrice.of(s.path("latestTrade").path("p").asDouble(0)),
+                    FixedPrice.of(q.path("bp").asDouble(0)),
+                    FixedPrice.of(q.path("ap").asDouble(0)),
+                    s.path("dailyBar").path("v").asLong(0L)));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Map<String, AlpacaClient.Snapshot> snapshotsStreaming() {
+        Map<String, AlpacaClient.Snapshot> out = new HashMap<>();
+        AlpacaDecoders.snapshots(snapshots, out);
+        return out;
+    }
+
+    // ---- Closed orders (the exit poll) ----
+    @Benchmark
+    public void ordersTree(Blackhole bh) throws IOException {
+        for (JsonNode ord : mapper.readTree(new String(closedOrders, StandardCharsets.UTF_8))) {
+            bh.consume(ord.path("id").asText(null));
+            bh.consume(ord.path("symbol").asText(null));
+            bh.consume(ord.path("type").asText("").toLowerCase());
+            bh.consume(ord.path("side").asText("").toLowerCase());
+            String avg = ord.path("filled_avg_price").asText("");
+            if (!avg.isBlank()) bh.consume(new BigDecimal(avg));
+        }
+    }
+
+    @Benchmark
+    public void ordersStreaming(Blackhole bh) {
+        for (AlpacaClient.OrderSummary ord : AlpacaDecoders.orders(closedOrders)) bh.consume(ord);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(AlpacaDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
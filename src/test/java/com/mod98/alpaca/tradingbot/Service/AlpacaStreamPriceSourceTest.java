@@ -0,0 +1,57 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import com.mod98.alpaca.tradingbot.Support.FakeStreamServer;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlpacaStreamPriceSourceTest {
+
+    private static final String AUTHENTICATED = "[{\"T\":\"success\",\"msg\":\"authenticated\"}]";
+
+    @Test
+    void streamsTradesAndResubscribesAfterReconnect() throws Exception {
+        try (FakeStreamServer server = new FakeStreamServer()) {
+            server.onConnect(c -> c.send("[{\"T\":\"success\",\"msg\":\"connected\"}]"));
+
+            AlpacaProperties props = new AlpacaProperties();
+            props.setApiKeyId("key");
+            props.setApiSecretKey("secret");
+            props.setStreamUrl(server.uri("/v2/iex").toString());
+
+            AlpacaStreamPriceSource source = new AlpacaStreamPriceSource(props);
+            BlockingQueue<String> trades = new LinkedBlockingQueue<>();
+            source.start((symbol, price) -> trades.add(symbol + "@" + FixedPrice.toString(price)));
+            try {
+                assertTrue(server.nextMessage(5000).contains("\"auth\""));
+                // Armed before authentication: remembered, then sent once the stream is ready
+                source.subscribe("AAPL");
+                assertFalse(source.isLive());
+                server.broadcast(AUTHENTICATED);
+                String sub = server.nextMessage(5000);
+                assertTrue(sub.contains("\"subscribe\"") && sub.contains("AAPL"), sub);
+                assertTrue(source.isLive());
+
+                server.broadcast("[{\"T\":\"t\",\"S\":\"AAPL\",\"p\":187.25}]");
+                assertEquals("AAPL@187.25", trades.poll(5, TimeUnit.SECONDS));
+
+                // Drop the connection: the source reconnects, re-authenticates and resubscribes
+                server.dropAll();
+                assertTrue(server.nextMessage(10_000).contains("\"auth\""));
+                server.broadcast(AUTHENTICATED);
+                String resub = server.nextMessage(5000);
+                assertTrue(resub.contains("\"subscribe\"") && resub.contains("AAPL"), resub);
+
+                source.unsubscribe("AAPL");
+                assertTrue(server.nextMessage(5000).contains("\"unsubscribe\""));
+            } finally {
+                source.stop();
+            }
+        }
+    }
+}
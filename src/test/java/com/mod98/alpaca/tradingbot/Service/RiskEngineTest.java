@@ -0,0 +1,92 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RiskEngineTest {
+
+    private static final long TRIGGER = FixedPrice.of(100.0);
+    // 5 bps spread, ask at the trigger: only the exposure guards can refuse it
+    private static final AlpacaClient.Snapshot QUOTE =
+            new AlpacaClient.Snapshot(FixedPrice.of(100.0), FixedPrice.of(99.95), FixedPrice.of(100.0), -1);
+
+    // $1,000 per symbol, $1,500 in total, 2 positions; no slippage, so the limit price is the trigger
+    private static final RiskEngine.Limits LIMITS =
+            new RiskEngine.Limits(50, 0, 0, FixedPrice.of(1_000.0), FixedPrice.of(1_500.0), 2);
+
+    @Test
+    void checkHoldsNothing() {
+        RiskEngine risk = new RiskEngine(LIMITS);
+        assertNull(risk.check("AAPL", 5, TRIGGER, QUOTE));
+        assertNull(risk.check("AAPL", 5, TRIGGER, QUOTE));
+        assertEquals(0, risk.pendingExposure());
+        assertEquals(0, risk.openPositions());
+    }
+
+    @Test
+    void reserveHoldsUntilReleased() {
+        RiskEngine risk = new RiskEngine(LIMITS);
+        assertNull(risk.reserve("AAPL", 5, TRIGGER));
+        assertEquals(FixedPrice.of(500.0), risk.pendingExposure());
+
+        // The held $500 counts against the symbol limit, for the check and the reservation alike
+        assertEquals(RiskEngine.Rule.SYMBOL_EXPOSURE, risk.check("AAPL", 6, TRIGGER, QUOTE).rule());
+        assertEquals(RiskEngine.Rule.SYMBOL_EXPOSURE, risk.reserve("AAPL", 6, TRIGGER).rule());
+        assertEquals(FixedPrice.of(500.0), risk.pendingExposure());
+
+        risk.release("AAPL", 2);
+        assertEquals(FixedPrice.of(300.0), risk.pendingExposure());
+        risk.release("AAPL", 3);
+        assertEquals(0, risk.pendingExposure());
+        assertEquals(0, risk.openPositions());
+        assertNull(risk.reserve("AAPL", 10, TRIGGER));
+    }
+
+    @Test
+    void reservationsCountTowardsPositionsAndTotal() {
+        RiskEngine risk = new RiskEngine(LIMITS);
+        assertNull(risk.reserve("AAPL", 8, TRIGGER));
+        assertNull(risk.reserve("MSFT", 5, TRIGGER));
+        assertEquals(RiskEngine.Rule.MAX_POSITIONS, risk.reserve("TSLA", 1, TRIGGER).rule());
+        assertEquals(RiskEngine.Rule.TOTAL_EXPOSURE, risk.reserve("MSFT", 3, TRIGGER).rule());
+
+        risk.release("MSFT", 5);
+        assertNull(risk.reserve("TSLA", 1, TRIGGER));
+        assertEquals(2, risk.openPositions());
+    }
+
+    @Test
+    void fillMovesTheReservationIntoTheBook() throws Exception {
+        AlpacaClient alpaca = mock(AlpacaClient.class);
+        ObjectMapper mapper = new ObjectMapper();
+        when(alpaca.getAccountAsync()).thenReturn(CompletableFuture.completedFuture(
+                mapper.readTree("{\"cash\":\"10000\",\"buying_power\":\"10000\"}")));
+        when(alpaca.getPositionsAsync()).thenReturn(CompletableFuture.completedFuture(mapper.readTree("[]")));
+        AccountBook book = new AccountBook(alpaca, 0);
+        try {
+            long until = System.currentTimeMillis() + 5_000;
+            while (!book.isSeeded() && System.currentTimeMillis() < until) Thread.sleep(10);
+            assertTrue(book.isSeeded());
+
+            RiskEngine risk = new RiskEngine(LIMITS, book);
+            assertNull(risk.reserve("AAPL", 5, TRIGGER));
+            // 4 of the 5 reserved shares filled at $99: the reservation ends, the position stays
+            risk.onFill("AAPL", 5, 4, FixedPrice.of(99.0));
+            assertEquals(0, risk.pendingExposure());
+            assertEquals(FixedPrice.of(396.0), book.exposure("AAPL"));
+            assertEquals(FixedPrice.of(10_000.0 - 396.0), book.buyingPower());
+            assertEquals(1, risk.openPositions());
+
+            assertEquals(RiskEngine.Rule.SYMBOL_EXPOSURE, risk.reserve("AAPL", 7, TRIGGER).rule());
+            assertNull(risk.reserve("AAPL", 6, TRIGGER));
+        } finally {
+            book.shutdown();
+        }
+    }
+}
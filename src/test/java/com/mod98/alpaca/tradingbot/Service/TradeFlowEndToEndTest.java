@@ -0,0 +1,229 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Config.AlpacaProperties;
+import com.mod98.alpaca.tradingbot.Model.AppSettings;
+import com.mod98.alpaca.tradingbot.Model.TradeEvent;
+import com.mod98.alpaca.tradingbot.Parsing.TradeSignal;
+import com.mod98.alpaca.tradingbot.Support.FakeAlpacaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+// Trigger -> entry -> fill -> OCO against FakeAlpacaServer: no network, no database
+class TradeFlowEndToEndTest {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeFlowEndToEndTest.class);
+
+    // Crossing -> OCO bound under load: a 200 ms price poll plus five round trips to the stand-in, with room
+    // for a slow CI machine
+    private static final long MAX_P99_MILLIS = 5_000;
+
+    @TempDir
+    Path journalDir;
+
+    private FakeAlpacaServer server;
+    private HashedTimingWheel deadlines;
+    private TriggerCallbackExecutor callbacks;
+    private PriceWatcherService watcher;
+    private TriggerJournal journal;
+    private TradeExecutorService executor;
+    private TradeAuditService audit;
+    private AlpacaProperties props;
+
+    // Audit events in order, and when (nanoTime) each symbol/type was first recorded
+    private final Queue<TradeEvent> events = new ConcurrentLinkedQueue<>();
+    private final Map<String, Long> recordedAt = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeAlpacaServer();
+
+        props = new AlpacaProperties();
+        props.setApiKeyId("key");
+        props.setApiSecretKey("secret");
+        props.setBaseUrl(server.url());
+        props.setDataUrl(server.url() + "/v2");
+        // Brackets depend on the wall clock (regular session); the OCO path is the same at any hour
+        props.setBracketEntries(false);
+
+        // Batches flushed every millisecond, so recordedAt stays close to when each event happened
+        audit = new TradeAuditService(batch -> batch.forEach(ev -> {
+            events.add(ev);
+            recordedAt.putIfAbsent(ev.getSymbol() + "|" + ev.getEventType(), System.nanoTime());
+        }), 10_000, 200, 1, TradeAuditService.Overflow.DROP_OLDEST);
+
+        AlpacaClient alpaca = new AlpacaClient(props, new AlpacaRateLimiter(60_000, 1_000));
+        MarketDataCache marketData = new MarketDataCache(alpaca, 50, 1000);
+        deadlines = new HashedTimingWheel();
+        callbacks = new TriggerCallbackExecutor(16, 1000, true);
+        watcher = new PriceWatcherService(marketData, null, deadlines, callbacks, Duration.ofMillis(200), Duration.ofMinutes(1));
+        journal = new TriggerJournal(journalDir.toString());
+        // Default guards: 50 bps spread, 30 bps slippage, 100k shares of daily volume
+        executor = new TradeExecutorService(alpaca, marketData, watcher, audit, deadlines, props, journal,
+                new ExecutionPipeline(props), new RiskEngine(RiskEngine.Limits.of(new AppSettings())),
+                mock(TradeRecordService.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        watcher.shutdown();
+        callbacks.shutdown();
+        deadlines.shutdown();
+        journal.close();
+        audit.shutdown();
+        server.close();
+    }
+
+    @Test
+    void triggerEntersThenProtectsWithOco() throws Exception {
+        server.script("AAPL", 100.00, 100.50, 101.10);
+        executor.executeSignal("chat|1", signal("AAPL", "101", "99"), 10, new BigDecimal("2"), false);
+
+        awaitTrue(() -> hasEvent("AAPL", "OCO_PLACED"), 15_000);
+        assertEquals(List.of("ARMED", "ENTRY_FILLED", "OCO_PLACED"), eventTypes("AAPL"));
+
+        List<FakeAlpacaServer.Order> orders = server.orders();
+        FakeAlpacaServer.Order buy = orders.get(0);
+        assertEquals("filled", buy.status());
+        assertEquals(0, new BigDecimal("101.1").compareTo(buy.filledAvgPrice()));
+        // TP from the fill (+2%), SL from the signal
+        FakeAlpacaServer.Order tp = find(orders, "limit", "sell");
+        FakeAlpacaServer.Order sl = find(orders, "stop", "sell");
+        assertEquals(new BigDecimal("103.12"), tp.limitPrice());
+        assertEquals(new BigDecimal("99.00"), sl.stopPrice());
+
+        // The market reaches the TP: it fills and takes the stop with it
+        server.price("AAPL", 103.50);
+        assertEquals("filled", tp.status());
+        assertEquals("canceled", sl.status());
+    }
+
+    @Test
+    void bracketEntryRepricesItsTakeProfit() throws Exception {
+        props.setBracketEntries(true);
+        executor.regularSession(at -> true);
+        server.script("NVDA", 100.00, 100.50, 101.10);
+        executor.executeSignal("chat|4", signal("NVDA", "101", "99"), 10, new BigDecimal("2"), false);
+
+        // Planned from the trigger (103.02), moved to the fill (+2% of 101.10)
+        awaitTrue(() -> hasEvent("NVDA", "TP_REPRICED"), 15_000);
+        assertEquals(List.of("ARMED", "ENTRY_FILLED", "TP_REPRICED"), eventTypes("NVDA"));
+        assertEquals(1, server.requests("POST", "/v2/orders"));
+
+        List<FakeAlpacaServer.Order> orders = server.orders();
+        assertEquals("bracket", orders.get(0).orderClass);
+        assertEquals("filled", orders.get(0).status());
+        FakeAlpacaServer.Order tp = orders.stream()
+                .filter(o -> "limit".equals(o.type) && "sell".equals(o.side) && !"replaced".equals(o.status()))
+                .findFirst().orElseThrow();
+        FakeAlpacaServer.Order sl = find(orders, "stop", "sell");
+        assertEquals(new BigDecimal("103.12"), tp.limitPrice());
+        assertEquals(new BigDecimal("99.00"), sl.stopPrice());
+
+        server.price("NVDA", 103.50);
+        assertEquals("filled", tp.status());
+        assertEquals("canceled", sl.status());
+    }
+
+    @Test
+    void entrySurvivesInjectedFaults() throws Exception {
+        server.script("MSFT", 400.00, 401.00, 402.00);
+        // The first submission is rate-limited, the retry hits a 503: the order still goes out once
+        server.fail("/v2/orders", 429, 1);
+        server.fail("/v2/orders", 503, 1);
+        executor.executeSignal("chat|2", signal("MSFT", "401.5", "395"), 5, new BigDecimal("1"), false);
+
+        awaitTrue(() -> hasEvent("MSFT", "OCO_PLACED"), 20_000);
+        assertEquals(1, server.orders().stream().filter(o -> "buy".equals(o.side)).count());
+        assertFalse(hasEvent("MSFT", "ERROR"), String.valueOf(eventTypes("MSFT")));
+    }
+
+    @Test
+    void wideSpreadIsRejectedWithItsRule() throws Exception {
+        server.script("TSLA", 200.00, 201.00);
+        server.spread(2.00); // ~100 bps
+        executor.executeSignal("chat|3", signal("TSLA", "200.5", "195"), 3, new BigDecimal("2"), false);
+
+        awaitTrue(() -> hasEvent("TSLA", "REJECTED"), 15_000);
+        String message = events.stream().filter(e -> "REJECTED".equals(e.getEventType())).findFirst().orElseThrow().getMessage();
+        assertTrue(message.contains("SPREAD"), message);
+        assertEquals(0, server.requests("POST", "/v2/orders"));
+    }
+
+    // Offline throughput/latency: many symbols cross at once, every one must end up protected
+    @Test
+    void crossingToOcoLatencyUnderLoad() throws Exception {
+        int symbols = 40;
+        server.latency(5, 10);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < symbols; i++) {
+            String s = "SYM" + i;
+            names.add(s);
+            server.price(s, 50.00);
+            executor.executeSignal("chat|" + s, signal(s, "50.5", "48"), 1, new BigDecimal("2"), false);
+        }
+
+        long crossed = System.nanoTime();
+        for (String s : names) server.price(s, 50.60);
+        awaitTrue(() -> names.stream().allMatch(s -> hasEvent(s, "OCO_PLACED")), 30_000);
+        long elapsed = System.nanoTime() - crossed;
+
+        List<Long> millis = new ArrayList<>();
+        for (String s : names) millis.add(TimeUnit.NANOSECONDS.toMillis(recordedAt.get(s + "|OCO_PLACED") - crossed));
+        Collections.sort(millis);
+        long p99 = millis.get((int) Math.ceil(symbols * 0.99) - 1);
+        log.info("crossing -> OCO for {} symbols: p50={} ms, p99={} ms, max={} ms, {} trades/s, {} requests",
+                symbols, millis.get(symbols / 2), p99, millis.get(symbols - 1),
+                String.format("%.1f", symbols * 1e9 / elapsed), server.requests().size());
+
+        assertTrue(p99 <= MAX_P99_MILLIS, "p99 crossing -> OCO " + p99 + " ms > " + MAX_P99_MILLIS + " ms");
+        assertEquals(symbols * 2L, server.requests("POST", "/v2/orders"));
+        assertTrue(events.stream().noneMatch(e -> "ERROR".equals(e.getEventType())));
+    }
+
+    private static TradeSignal signal(String symbol, String trigger, String stop) {
+        return new TradeSignal(symbol, new BigDecimal(trigger), new BigDecimal(stop), List.of());
+    }
+
+    private boolean hasEvent(String symbol, String type) {
+        return recordedAt.containsKey(symbol + "|" + type);
+    }
+
+    private List<String> eventTypes(String symbol) {
+        return events.stream().filter(e -> symbol.equals(e.getSymbol())).map(TradeEvent::getEventType).toList();
+    }
+
+    private static FakeAlpacaServer.Order find(List<FakeAlpacaServer.Order> orders, String type, String side) {
+        return orders.stream()
+                .filter(o -> type.equals(o.type) && side.equals(o.side))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No " + side + " " + type + " order in " + orders));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long timeoutMillis) throws InterruptedException {
+        long until = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > until) fail("Condition not met within " + timeoutMillis + " ms");
+            Thread.sleep(20);
+        }
+    }
+}
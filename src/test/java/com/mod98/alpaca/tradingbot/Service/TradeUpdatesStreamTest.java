@@ -0,0 +1,75 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import com.mod98.alpaca.tradingbot.Support.FakeStreamServer;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeUpdatesStreamTest {
+
+    private static final String AUTHORIZED =
+            "{\"stream\":\"authorization\",\"data\":{\"action\":\"authenticate\",\"status\":\"authorized\"}}";
+    private static final String LISTENING =
+            "{\"stream\":\"listening\",\"data\":{\"streams\":[\"trade_updates\"]}}";
+
+    @Test
+    void pushesFillsAndListensAgainAfterReconnect() throws Exception {
+        try (FakeStreamServer server = new FakeStreamServer()) {
+            TradeUpdatesStream stream = new TradeUpdatesStream(server.uri("/stream"), "key", "secret");
+            BlockingQueue<TradeUpdatesStream.TradeUpdate> updates = new LinkedBlockingQueue<>();
+            stream.addListener(updates::add);
+            stream.start();
+            try {
+                assertTrue(server.nextMessage(5000).contains("\"auth\""));
+                server.broadcast(AUTHORIZED);
+                String listen = server.nextMessage(5000);
+                assertTrue(listen.contains("\"listen\"") && listen.contains("trade_updates"), listen);
+                assertFalse(stream.isReady());
+                server.broadcast(LISTENING);
+
+                server.broadcast(update("partial_fill", "o-1", "buy", "limit", "4", "187.2"));
+                server.broadcast(update("fill", "o-1", "buy", "limit", "10", "187.25"));
+                TradeUpdatesStream.TradeUpdate partial = updates.poll(5, TimeUnit.SECONDS);
+                assertNotNull(partial);
+                assertFalse(partial.isFill());
+                assertFalse(partial.isFinal());
+                TradeUpdatesStream.TradeUpdate fill = updates.poll(5, TimeUnit.SECONDS);
+                assertNotNull(fill);
+                assertTrue(fill.isFill());
+                assertTrue(stream.isReady());
+                assertEquals("o-1", fill.order().id());
+                assertEquals("AAPL", fill.order().symbol());
+                assertEquals(10, fill.order().filledQty());
+                assertEquals(new BigDecimal("187.25"), fill.order().filledAvgPrice());
+
+                // A cancelled order has no average price yet
+                server.broadcast(update("canceled", "o-2", "sell", "stop", "0", null));
+                TradeUpdatesStream.TradeUpdate cancel = updates.poll(5, TimeUnit.SECONDS);
+                assertNotNull(cancel);
+                assertTrue(cancel.isFinal());
+                assertEquals("stop", cancel.order().type());
+                assertNull(cancel.order().filledAvgPrice());
+
+                // Drop the connection: the stream reconnects, re-authenticates and listens again
+                server.dropAll();
+                assertTrue(server.nextMessage(10_000).contains("\"auth\""));
+                server.broadcast(AUTHORIZED);
+                assertTrue(server.nextMessage(5000).contains("\"listen\""));
+            } finally {
+                stream.stop();
+            }
+        }
+    }
+
+    private static String update(String event, String orderId, String side, String type, String filledQty, String avg) {
+        return "{\"stream\":\"trade_updates\",\"data\":{\"event\":\"" + event + "\",\"timestamp\":\"2026-03-02T14:30:00.123456Z\","
+                + "\"order\":{\"id\":\"" + orderId + "\",\"client_order_id\":\"c-" + orderId + "\",\"symbol\":\"AAPL\","
+                + "\"side\":\"" + side + "\",\"type\":\"" + type + "\",\"status\":\"" + event + "\",\"qty\":\"10\","
+                + "\"filled_qty\":\"" + filledQty + "\",\"filled_avg_price\":" + (avg == null ? "null" : "\"" + avg + "\"") + "}}}";
+    }
+}
@@ -0,0 +1,91 @@
+package com.mod98.alpaca.tradingbot.Service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-tick trigger check with thousands of armed triggers: BigDecimal vs FixedPrice.
+// Run main() (GC profiler on) and compare gc.alloc.rate.norm (bytes per tick).
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriggerCheckBenchmark {
+
+    @Param({"1000", "5000"})
+    int triggers;
+
+    // Quiet ticks below every trigger: the common case where nothing crosses
+    private double[] ticks;
+    private int next;
+
+    private List<BigDecimal> watchTriggers;
+    private TreeMap<BigDecimal, Object> decimalBook;
+    private TriggerIndex<Object> fixedBook;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        ticks = new double[1024];
+        for (int i = 0; i < ticks.length; i++) ticks[i] = 95 + rnd.nextInt(500) / 100.0;
+
+        watchTriggers = new ArrayList<>(triggers);
+        decimalBook = new TreeMap<>();
+        fixedBook = new TriggerIndex<>();
+        for (int i = 0; i < triggers; i++) {
+            BigDecimal trg = BigDecimal.valueOf(10_100 + i, 2).setScale(6, RoundingMode.HALF_UP);
+            Object watch = new Object();
+            watchTriggers.add(trg);
+            decimalBook.put(trg, watch);
+            fixedBook.putIfAbsent(FixedPrice.of(trg), watch);
+        }
+    }
+
+    private double tick() {
+        return ticks[next++ & (ticks.length - 1)];
+    }
+
+    // Before the shared poll: every watch parsed its own price and compared BigDecimals
+    @Benchmark
+    public int perWatchBigDecimal() {
+        double px = tick();
+        int crossed = 0;
+        for (BigDecimal trg : watchTriggers) {
+            BigDecimal last = BigDecimal.valueOf(px);
+            if (last.compareTo(trg) >= 0) crossed++;
+        }
+        return crossed;
+    }
+
+    // Shared poll, sorted BigDecimal index: one parse + setScale + TreeMap view per tick
+    @Benchmark
+    public boolean sortedBigDecimal() {
+        BigDecimal last = BigDecimal.valueOf(tick()).setScale(6, RoundingMode.HALF_UP);
+        return decimalBook.headMap(last, true).isEmpty();
+    }
+
+    // Current path: FixedPrice long + binary search over long[]; allocation-free when nothing crosses
+    @Benchmark
+    public long sortedFixedPoint() {
+        long last = FixedPrice.of(tick());
+        return fixedBook.pollAtOrBelow(last).size() + fixedBook.ceilingAbove(last);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(TriggerCheckBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,624 @@
+package com.mod98.alpaca.tradingbot.Support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Local stand-in for Alpaca's trading and market-data REST APIs, for offline end-to-end, latency and load tests.
+// Both hosts are served from one port: baseUrl = url(), dataUrl = url() + "/v2".
+// Prices follow scripted paths (one step per latest-trade lookup); limit, bracket and OCO orders are matched
+// against the current price every time it moves.
+public class FakeAlpacaServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "FakeAlpacaServer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Map<String, PricePath> prices = new ConcurrentHashMap<>();
+    private final Map<String, Long> volumes = new ConcurrentHashMap<>();
+    private final Map<String, Order> orders = new LinkedHashMap<>();      // guarded by this
+    private final Map<String, Order> byClientId = new HashMap<>();        // guarded by this
+    private final Queue<Fault> faults = new ConcurrentLinkedQueue<>();
+    private final Queue<String> requestLog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger orderSeq = new AtomicInteger();
+    private volatile long latencyMs;
+    private volatile long jitterMs;
+    private volatile double spread = 0.02;
+
+    public FakeAlpacaServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(pool);
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // ---- Scripting ----
+
+    // Fixed price from now on
+    public void price(String symbol, double price) {
+        script(symbol, price);
+    }
+
+    // Each latest-trade lookup of the symbol moves one step along the path; the last price then sticks
+    public void script(String symbol, double... path) {
+        prices.put(symbol, new PricePath(path));
+        match(symbol, path[0]);
+    }
+
+    public double currentPrice(String symbol) {
+        PricePath p = prices.get(symbol);
+        return p == null ? Double.NaN : p.current();
+    }
+
+    public void spread(double spread) { this.spread = spread; }
+
+    // Today's volume in snapshots (1,000,000 unless set)
+    public void volume(String symbol, long volume) { volumes.put(symbol, volume); }
+
+    // Every response is delayed by fixedMs plus a uniform random 0..jitterMs
+    public void latency(long fixedMs, long jitterMs) {
+        this.latencyMs = fixedMs;
+        this.jitterMs = jitterMs;
+    }
+
+    // The next `times` requests whose path starts with pathPrefix (null = any) answer with status;
+    // 429 comes with Retry-After: 0
+    public void fail(String pathPrefix, int status, int times) {
+        faults.add(new Fault(pathPrefix, status, new AtomicInteger(times)));
+    }
+
+    // "METHOD /path?query" of every request so far, oldest first
+    public List<String> requests() { return new ArrayList<>(requestLog); }
+
+    public long requests(String method, String pathPrefix) {
+        String prefix = method + " " + pathPrefix;
+        return requestLog.stream().filter(r -> r.startsWith(prefix)).count();
+    }
+
+    public synchronized List<Order> orders() {
+        return new ArrayList<>(orders.values());
+    }
+
+    public synchronized Order order(String id) { return orders.get(id); }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        pool.shutdownNow();
+    }
+
+    // ---- Model ----
+
+    public static final class Order {
+        public final String id;
+        public final String clientOrderId;
+        public final String symbol;
+        public final String side;
+        public final String type;
+        public final String orderClass;
+        public final int qty;
+        public final Instant submittedAt = Instant.now();
+        volatile BigDecimal limitPrice;
+        volatile BigDecimal stopPrice;
+        volatile String status;
+        volatile int filledQty;
+        volatile BigDecimal filledAvgPrice;
+        Order parent;
+        final List<Order> legs = new ArrayList<>();
+
+        Order(String id, String clientOrderId, String symbol, String side, String type, String orderClass, int qty,
+              BigDecimal limitPrice, BigDecimal stopPrice, String status) {
+            this.id = id; this.clientOrderId = clientOrderId; this.symbol = symbol; this.side = side; this.type = type;
+            this.orderClass = orderClass; this.qty = qty; this.limitPrice = limitPrice; this.stopPrice = stopPrice;
+            this.status = status;
+        }
+
+        public String status() { return status; }
+        public int filledQty() { return filledQty; }
+        public BigDecimal filledAvgPrice() { return filledAvgPrice; }
+        public BigDecimal limitPrice() { return limitPrice; }
+        public BigDecimal stopPrice() { return stopPrice; }
+
+        boolean isOpen() { return "new".equals(status) || "held".equals(status) || "partially_filled".equals(status); }
+
+        @Override
+        public String toString() {
+            return side + " " + type + " " + qty + " " + symbol + " " + status + " (" + orderClass + ", " + id + ")";
+        }
+    }
+
+    private record Fault(String pathPrefix, int status, AtomicInteger remaining) {}
+
+    private static final class PricePath {
+        private final double[] steps;
+        private int pos;
+        private double last;
+        PricePath(double[] steps) {
+            this.steps = steps.clone();
+            this.last = steps[0];
+        }
+        // Last price handed out
+        synchronized double current() { return last; }
+        synchronized double advance() {
+            last = steps[pos];
+            if (pos < steps.length - 1) pos++;
+            return last;
+        }
+    }
+
+    // ---- HTTP ----
+
+    private void handle(HttpExchange ex) throws IOException {
+        try (ex) {
+            String path = ex.getRequestURI().getPath();
+            String query = ex.getRequestURI().getRawQuery();
+            String method = ex.getRequestMethod();
+            requestLog.add(method + " " + path + (query == null ? "" : "?" + query));
+            delay();
+
+            Fault fault = nextFault(path);
+            if (fault != null) {
+                if (fault.status() == 429) ex.getResponseHeaders().add("Retry-After", "0");
+                send(ex, fault.status(), error("injected " + fault.status()));
+                return;
+            }
+            byte[] body = ex.getRequestBody().readAllBytes();
+            Map<String, String> params = params(query);
+            route(ex, method, path, params, body);
+        } catch (RuntimeException e) {
+            send(ex, 500, error(String.valueOf(e)));
+        }
+    }
+
+    private void route(HttpExchange ex, String method, String path, Map<String, String> q, byte[] body) throws IOException {
+        if (path.equals("/v2/account")) { send(ex, 200, account()); return; }
+        if (path.equals("/v2/clock")) { send(ex, 200, clock()); return; }
+        if (path.equals("/v2/positions")) { send(ex, 200, positions()); return; }
+        if (path.equals("/v2/stocks/meta/exchanges")) { send(ex, 200, mapper.createObjectNode()); return; }
+        if (path.equals("/v2/stocks/trades/latest")) { send(ex, 200, latestTrades(q.get("symbols"))); return; }
+        if (path.equals("/v2/stocks/quotes/latest")) { send(ex, 200, latestQuotes(q.get("symbols"))); return; }
+        if (path.equals("/v2/stocks/snapshots")) { send(ex, 200, snapshots(q.get("symbols"))); return; }
+        if (path.startsWith("/v2/stocks/")) {
+            String[] parts = path.split("/"); // "", v2, stocks, SYM, trades|quotes, latest  or  "", v2, stocks, SYM, snapshot
+            if (parts.length == 6 && prices.containsKey(parts[3])) {
+                send(ex, 200, "trades".equals(parts[4]) ? latestTrade(parts[3]) : latestQuote(parts[3]));
+            } else if (parts.length == 5 && "snapshot".equals(parts[4]) && prices.containsKey(parts[3])) {
+                send(ex, 200, snapshot(parts[3]));
+            } else {
+                send(ex, 404, error("not found"));
+            }
+            return;
+        }
+        if (path.equals("/v2/orders:by_client_order_id")) {
+            Order o;
+            synchronized (this) { o = byClientId.get(q.get("client_order_id")); }
+            if (o == null) send(ex, 404, error("order not found"));
+            else send(ex, 200, json(o, true));
+            return;
+        }
+        if (path.equals("/v2/orders")) {
+            if ("POST".equals(method)) submit(ex, mapper.readTree(body));
+            else send(ex, 200, listOrders(q));
+            return;
+        }
+        if (path.startsWith("/v2/orders/")) {
+            String id = path.substring("/v2/orders/".length());
+            switch (method) {
+                case "GET" -> {
+                    Order o = order(id);
+                    if (o == null) send(ex, 404, error("order not found"));
+                    else send(ex, 200, json(o, true));
+                }
+                case "DELETE" -> {
+                    int status = cancel(id);
+                    if (status == 204) send(ex, 204, null);
+                    else send(ex, status, error(status == 404 ? "order not found" : "order is not cancelable"));
+                }
+                case "PATCH" -> replace(ex, id, mapper.readTree(body));
+                default -> send(ex, 405, error("method not allowed"));
+            }
+            return;
+        }
+        send(ex, 404, error("no route " + path));
+    }
+
+    // ---- Market data ----
+
+    private ObjectNode latestTrade(String symbol) {
+        ObjectNode root = mapper.createObjectNode().put("symbol", symbol);
+        double px = prices.get(symbol).advance();
+        root.set("trade", trade(px));
+        match(symbol, px);
+        return root;
+    }
+
+    private ObjectNode latestQuote(String symbol) {
+        ObjectNode root = mapper.createObjectNode().put("symbol", symbol);
+        root.set("quote", quote(prices.get(symbol).current()));
+        return root;
+    }
+
+    private ObjectNode latestTrades(String symbols) {
+        ObjectNode trades = mapper.createObjectNode();
+        for (String s : split(symbols)) {
+            PricePath p = prices.get(s);
+            if (p == null) continue;
+            double px = p.advance();
+            trades.set(s, trade(px));
+            match(s, px);
+        }
+        ObjectNode root = mapper.createObjectNode();
+        root.set("trades", trades);
+        return root;
+    }
+
+    private ObjectNode latestQuotes(String symbols) {
+        ObjectNode quotes = mapper.createObjectNode();
+        for (String s : split(symbols)) {
+            PricePath p = prices.get(s);
+            if (p != null) quotes.set(s, quote(p.current()));
+        }
+        ObjectNode root = mapper.createObjectNode();
+        root.set("quotes", quotes);
+        return root;
+    }
+
+    private ObjectNode snapshots(String symbols) {
+        ObjectNode root = mapper.createObjectNode();
+        for (String s : split(symbols)) {
+            PricePath p = prices.get(s);
+            if (p != null) root.set(s, snapshot(s));
+        }
+        return root;
+    }
+
+    private ObjectNode snapshot(String symbol) {
+        double px = prices.get(symbol).current();
+        ObjectNode snap = mapper.createObjectNode();
+        snap.set("latestTrade", trade(px));
+        snap.set("latestQuote", quote(px));
+        snap.putObject("dailyBar").put("o", px).put("h", px).put("l", px).put("c", px)
+                .put("v", volumes.getOrDefault(symbol, 1_000_000L));
+        return snap;
+    }
+
+    private ObjectNode trade(double px) {
+        return mapper.createObjectNode().put("t", Instant.now().toString()).put("x", "V").put("p", px).put("s", 100);
+    }
+
+    private ObjectNode quote(double px) {
+        double half = spread / 2;
+        return mapper.createObjectNode().put("t", Instant.now().toString())
+                .put("bp", round(px - half)).put("bs", 1).put("ap", round(px + half)).put("as", 1);
+    }
+
+    // ---- Trading ----
+
+    private ObjectNode account() {
+        return mapper.createObjectNode()
+                .put("id", "fake-account")
+                .put("status", "ACTIVE")
+                .put("currency", "USD")
+                .put("cash", "100000")
+                .put("buying_power", "100000")
+                .put("equity", "100000")
+                .put("portfolio_value", "100000")
+                .put("daytrade_count", 0)
+                .put("pattern_day_trader", false);
+    }
+
+    private ObjectNode clock() {
+        return mapper.createObjectNode().put("timestamp", Instant.now().toString()).put("is_open", true);
+    }
+
+    // Net filled quantity per symbol
+    private synchronized ArrayNode positions() {
+        Map<String, BigDecimal[]> net = new TreeMap<>(); // qty, cost
+        for (Order o : allOrders()) {
+            if (o.filledQty == 0 || o.filledAvgPrice == null) continue;
+            BigDecimal[] p = net.computeIfAbsent(o.symbol, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            BigDecimal q = BigDecimal.valueOf("buy".equals(o.side) ? o.filledQty : -o.filledQty);
+            p[0] = p[0].add(q);
+            p[1] = p[1].add(q.multiply(o.filledAvgPrice));
+        }
+        ArrayNode out = mapper.createArrayNode();
+        net.forEach((symbol, p) -> {
+            if (p[0].signum() == 0) return;
+            out.addObject()
+                    .put("symbol", symbol)
+                    .put("qty", p[0].toPlainString())
+                    .put("side", p[0].signum() > 0 ? "long" : "short")
+                    .put("avg_entry_price", p[1].divide(p[0], 4, RoundingMode.HALF_UP).toPlainString());
+        });
+        return out;
+    }
+
+    private void submit(HttpExchange ex, JsonNode req) throws IOException {
+        String symbol = req.path("symbol").asText();
+        String coid = req.path("client_order_id").asText(UUID.randomUUID().toString());
+        int qty = req.path("qty").asInt();
+        String side = req.path("side").asText();
+        String type = req.path("type").asText();
+        String orderClass = req.path("order_class").asText("simple");
+        if (!prices.containsKey(symbol) || qty <= 0) {
+            send(ex, 422, error("invalid order"));
+            return;
+        }
+        Order root;
+        synchronized (this) {
+            if (byClientId.containsKey(coid)) {
+                send(ex, 422, error("client_order_id must be unique"));
+                return;
+            }
+            BigDecimal limit = decimal(req.path("limit_price"));
+            BigDecimal tp = decimal(req.path("take_profit").path("limit_price"));
+            BigDecimal sl = decimal(req.path("stop_loss").path("stop_price"));
+            switch (orderClass) {
+                case "bracket" -> {
+                    root = add(new Order(newId(), coid, symbol, side, type, orderClass, qty, limit, null, "new"));
+                    leg(root, new Order(newId(), coid + "-tp", symbol, opposite(side), "limit", orderClass, qty, tp, null, "held"));
+                    leg(root, new Order(newId(), coid + "-sl", symbol, opposite(side), "stop", orderClass, qty, null, sl, "held"));
+                }
+                case "oco" -> {
+                    root = add(new Order(newId(), coid, symbol, side, "limit", orderClass, qty, tp, null, "new"));
+                    leg(root, new Order(newId(), coid + "-sl", symbol, side, "stop", orderClass, qty, null, sl, "new"));
+                }
+                default -> root = add(new Order(newId(), coid, symbol, side, type, orderClass, qty, limit,
+                        decimal(req.path("stop_price")), "new"));
+            }
+            byClientId.put(coid, root);
+            matchLocked(symbol, prices.get(symbol).current());
+        }
+        send(ex, 200, json(root, true));
+    }
+
+    // Alpaca-style replace: the old order ends as "replaced", a new one takes its place (and its legs)
+    private void replace(HttpExchange ex, String id, JsonNode req) throws IOException {
+        Order fresh;
+        synchronized (this) {
+            Order old = orders.get(id);
+            if (old == null || !old.isOpen()) {
+                send(ex, old == null ? 404 : 422, error("order is not replaceable"));
+                return;
+            }
+            BigDecimal limit = req.has("limit_price") ? decimal(req.path("limit_price")) : old.limitPrice;
+            BigDecimal stop = req.has("stop_price") ? decimal(req.path("stop_price")) : old.stopPrice;
+            fresh = add(new Order(newId(), old.clientOrderId + "-r", old.symbol, old.side, old.type, old.orderClass,
+                    old.qty, limit, stop, old.status));
+            old.status = "replaced";
+            if (old.parent != null) {
+                fresh.parent = old.parent;
+                old.parent.legs.set(old.parent.legs.indexOf(old), fresh);
+            }
+            for (Order leg : old.legs) leg.parent = fresh;
+            fresh.legs.addAll(old.legs);
+            old.legs.clear();
+            matchLocked(fresh.symbol, prices.get(fresh.symbol).current());
+        }
+        send(ex, 200, json(fresh, true));
+    }
+
+    private synchronized int cancel(String id) {
+        Order o = orders.get(id);
+        if (o == null) return 404;
+        if (!o.isOpen()) return 422;
+        o.status = "canceled";
+        // A cancelled entry takes its exits with it unless something filled
+        if (o.filledQty == 0) {
+            for (Order leg : o.legs) if (leg.isOpen()) leg.status = "canceled";
+        }
+        return 204;
+    }
+
+    private synchronized ArrayNode listOrders(Map<String, String> q) {
+        String status = q.getOrDefault("status", "open");
+        String side = q.get("side");
+        int limit = Integer.parseInt(q.getOrDefault("limit", "50"));
+        Instant after = q.containsKey("after") ? Instant.parse(q.get("after")) : null;
+        boolean nested = Boolean.parseBoolean(q.getOrDefault("nested", "false"));
+
+        List<Order> all = new ArrayList<>(nested ? roots() : orders.values());
+        Collections.reverse(all); // newest first
+        ArrayNode out = mapper.createArrayNode();
+        for (Order o : all) {
+            if (out.size() >= limit) break;
+            if ("replaced".equals(o.status) && o.parent != null) continue;
+            boolean open = o.isOpen();
+            if ("open".equals(status) && !open || "closed".equals(status) && open) continue;
+            if (side != null && !side.equals(o.side)) continue;
+            if (after != null && !o.submittedAt.isAfter(after)) continue;
+            out.add(json(o, nested));
+        }
+        return out;
+    }
+
+    // ---- Matching ----
+
+    private synchronized void match(String symbol, double px) {
+        matchLocked(symbol, px);
+    }
+
+    // Entries fill at the market when it is at or through the limit; a filled entry releases its held exits;
+    // an exit that fills cancels the others of its group
+    private void matchLocked(String symbol, double px) {
+        BigDecimal price = BigDecimal.valueOf(px);
+        for (Order o : new ArrayList<>(orders.values())) {
+            if (!o.symbol.equals(symbol) || !"new".equals(o.status)) continue;
+            boolean buy = "buy".equals(o.side);
+            BigDecimal fill = null;
+            if ("limit".equals(o.type)) {
+                if (buy ? price.compareTo(o.limitPrice) <= 0 : price.compareTo(o.limitPrice) >= 0) {
+                    fill = buy ? price : o.limitPrice.max(price);
+                }
+            } else if ("stop".equals(o.type)) {
+                if (buy ? price.compareTo(o.stopPrice) >= 0 : price.compareTo(o.stopPrice) <= 0) fill = price;
+            } else if ("market".equals(o.type)) {
+                fill = price;
+            }
+            if (fill == null) continue;
+            o.status = "filled";
+            o.filledQty = o.qty;
+            o.filledAvgPrice = fill;
+            for (Order leg : o.legs) if ("held".equals(leg.status)) leg.status = "new";
+            for (Order other : exitGroup(o)) if (other != o && other.isOpen()) other.status = "canceled";
+        }
+    }
+
+    // The exits that exclude each other: legs of a bracket, or an OCO order plus its stop leg
+    private List<Order> exitGroup(Order o) {
+        Order root = o.parent != null ? o.parent : o;
+        List<Order> group = new ArrayList<>(root.legs);
+        if ("oco".equals(root.orderClass)) group.add(root);
+        return group.contains(o) ? group : List.of();
+    }
+
+    // ---- Helpers ----
+
+    private Order add(Order o) {
+        orders.put(o.id, o);
+        return o;
+    }
+
+    private void leg(Order parent, Order leg) {
+        leg.parent = parent;
+        parent.legs.add(add(leg));
+    }
+
+    private List<Order> roots() {
+        List<Order> out = new ArrayList<>();
+        for (Order o : orders.values()) if (o.parent == null) out.add(o);
+        return out;
+    }
+
+    private List<Order> allOrders() {
+        List<Order> out = new ArrayList<>();
+        for (Order o : orders.values()) if (!"replaced".equals(o.status)) out.add(o);
+        return out;
+    }
+
+    private String newId() {
+        return String.format("00000000-0000-4000-8000-%012d", orderSeq.incrementAndGet());
+    }
+
+    private ObjectNode json(Order o, boolean withLegs) {
+        ObjectNode n = mapper.createObjectNode()
+                .put("id", o.id)
+                .put("client_order_id", o.clientOrderId)
+                .put("submitted_at", o.submittedAt.toString())
+                .put("symbol", o.symbol)
+                .put("asset_class", "us_equity")
+                .put("qty", String.valueOf(o.qty))
+                .put("filled_qty", String.valueOf(o.filledQty))
+                .put("order_class", "simple".equals(o.orderClass) ? "" : o.orderClass)
+                .put("type", o.type)
+                .put("order_type", o.type)
+                .put("side", o.side)
+                .put("status", o.status);
+        putDecimal(n, "filled_avg_price", o.filledAvgPrice);
+        putDecimal(n, "limit_price", o.limitPrice);
+        putDecimal(n, "stop_price", o.stopPrice);
+        if (withLegs && !o.legs.isEmpty()) {
+            ArrayNode legs = n.putArray("legs");
+            for (Order leg : o.legs) legs.add(json(leg, false));
+        } else {
+            n.putNull("legs");
+        }
+        return n;
+    }
+
+    private static void putDecimal(ObjectNode n, String field, BigDecimal v) {
+        if (v == null) n.putNull(field);
+        else n.put(field, v.toPlainString());
+    }
+
+    private ObjectNode error(String message) {
+        return mapper.createObjectNode().put("code", 40010001).put("message", message);
+    }
+
+    private void send(HttpExchange ex, int status, JsonNode body) throws IOException {
+        if (body == null) {
+            ex.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Fault nextFault(String path) {
+        for (Fault f : faults) {
+            if (f.pathPrefix() != null && !path.startsWith(f.pathPrefix())) continue;
+            if (f.remaining().getAndDecrement() > 0) return f;
+            faults.remove(f);
+        }
+        return null;
+    }
+
+    private void delay() {
+        long ms = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, String> params(String rawQuery) {
+        Map<String, String> out = new HashMap<>();
+        if (rawQuery == null) return out;
+        for (String kv : rawQuery.split("&")) {
+            int i = kv.indexOf('=');
+            if (i <= 0) continue;
+            out.put(kv.substring(0, i), URLDecoder.decode(kv.substring(i + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static List<String> split(String symbols) {
+        return symbols == null || symbols.isBlank() ? List.of() : Arrays.asList(symbols.split(","));
+    }
+
+    private static BigDecimal decimal(JsonNode n) {
+        return n.isMissingNode() || n.isNull() || n.asText().isBlank() ? null : new BigDecimal(n.asText());
+    }
+
+    private static String opposite(String side) {
+        return "buy".equals(side) ? "sell" : "buy";
+    }
+
+    private static double round(double px) {
+        return BigDecimal.valueOf(px).setScale(4, RoundingMode.HALF_UP).doubleValue();
+    }
+}
@@ -0,0 +1,185 @@
+package com.mod98.alpaca.tradingbot.Support;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Minimal local WebSocket server (RFC 6455 text frames only) standing in for Alpaca's streams
+public class FakeStreamServer implements AutoCloseable {
+
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket server;
+    private final ExecutorService pool = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "FakeStreamServer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private volatile Consumer<Client> onConnect = c -> {};
+    private volatile boolean closed;
+
+    public FakeStreamServer() throws IOException {
+        this.server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        pool.submit(this::acceptLoop);
+    }
+
+    public URI uri(String path) {
+        return URI.create("ws://127.0.0.1:" + server.getLocalPort() + path);
+    }
+
+    // Called for every new connection, e.g. to send the "connected" greeting
+    public void onConnect(Consumer<Client> handler) { this.onConnect = handler; }
+
+    // Next text message sent by any client, or null after the timeout
+    public String nextMessage(long timeoutMs) throws InterruptedException {
+        return received.poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void broadcast(String text) {
+        for (Client c : clients) c.send(text);
+    }
+
+    // Close every connection the way Alpaca does on maintenance (1001 going away)
+    public void dropAll() {
+        for (Client c : clients) {
+            c.frame(0x8, new byte[]{0x03, (byte) 0xE9});
+            c.kill();
+        }
+        clients.clear();
+    }
+
+    public int connections() { return clients.size(); }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        dropAll();
+        server.close();
+        pool.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket s = server.accept();
+                pool.submit(() -> serve(s));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        Client client = null;
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            String key = null;
+            for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+                int idx = line.indexOf(':');
+                if (idx > 0 && line.substring(0, idx).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                    key = line.substring(idx + 1).trim();
+                }
+            }
+            if (key == null) { socket.close(); return; }
+
+            String accept = Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-1").digest((key + GUID).getBytes(StandardCharsets.US_ASCII)));
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 101 Switching Protocols\r\n"
+                    + "Upgrade: websocket\r\n"
+                    + "Connection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            client = new Client(socket, out);
+            clients.add(client);
+            onConnect.accept(client);
+
+            while (true) {
+                int b0 = in.read();
+                if (b0 < 0) break;
+                int opcode = b0 & 0x0F;
+                int b1 = in.readUnsignedByte();
+                long len = b1 & 0x7F;
+                if (len == 126) len = in.readUnsignedShort();
+                else if (len == 127) len = in.readLong();
+                byte[] mask = new byte[4];
+                if ((b1 & 0x80) != 0) in.readFully(mask);
+                byte[] payload = new byte[(int) len];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) payload[i] ^= mask[i % 4];
+
+                if (opcode == 0x1) received.add(new String(payload, StandardCharsets.UTF_8));
+                else if (opcode == 0x8) { client.frame(0x8, payload); break; }
+                else if (opcode == 0x9) client.frame(0xA, payload);
+            }
+        } catch (Exception ignored) {
+            // connection gone
+        } finally {
+            if (client != null) clients.remove(client);
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+    }
+
+    private static String readLine(DataInputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') break;
+            if (c != '\r') sb.append((char) c);
+        }
+        return c < 0 && sb.length() == 0 ? null : sb.toString();
+    }
+
+    public static final class Client {
+        private final Socket socket;
+        private final OutputStream out;
+
+        Client(Socket socket, OutputStream out) { this.socket = socket; this.out = out; }
+
+        public void send(String text) {
+            frame(0x1, text.getBytes(StandardCharsets.UTF_8));
+        }
+
+        synchronized void frame(int opcode, byte[] payload) {
+            try {
+                out.write(0x80 | opcode);
+                if (payload.length < 126) {
+                    out.write(payload.length);
+                } else if (payload.length < 65536) {
+                    out.write(126);
+                    out.write(payload.length >>> 8);
+                    out.write(payload.length & 0xFF);
+                } else {
+                    out.write(127);
+                    for (int i = 7; i >= 0; i--) out.write((int) ((long) payload.length >>> (8 * i)) & 0xFF);
+                }
+                out.write(payload);
+                out.flush();
+            } catch (IOException ignored) {
+                // client gone
+            }
+        }
+
+        void kill() {
+            try { socket.close(); } catch (IOException ignored) {}
+        }
+    }
+}